@@ -9,6 +9,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 @EnableJpaRepositories(
     basePackageClasses = {
         eu.opertusmundi.common.repository._Marker.class,
+        eu.opertusmundi.bpm.worker.repository._Marker.class,
     }
 )
 @EnableTransactionManagement(mode = AdviceMode.PROXY)
@@ -0,0 +1,130 @@
+package eu.opertusmundi.bpm.worker.model;
+
+import java.util.BitSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable in-memory index of account identifiers. Account ids are stored in
+ * a bit set, keys in an open addressing hash set of primitive longs and
+ * emails in a hash set.
+ *
+ * <p>
+ * The index is a snapshot; accounts created after the index has been loaded
+ * are not included.
+ */
+public class AccountExistenceIndex {
+
+    private final BitSet ids;
+
+    private final UuidSet keys;
+
+    private final Set<String> emails;
+
+    public AccountExistenceIndex(BitSet ids, UuidSet keys, Set<String> emails) {
+        this.ids    = ids;
+        this.keys   = keys;
+        this.emails = emails;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && this.ids.get(id);
+    }
+
+    public boolean contains(UUID key) {
+        return this.keys.contains(key);
+    }
+
+    public boolean contains(String email) {
+        return this.emails.contains(email);
+    }
+
+    public int size() {
+        return this.ids.cardinality();
+    }
+
+    /**
+     * Compact hash set of UUID values using linear probing. Each value
+     * occupies two long slots
+     */
+    public static class UuidSet {
+
+        private long[] table;
+
+        private boolean[] used;
+
+        private int size;
+
+        public UuidSet(int expectedSize) {
+            int capacity = 16;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            this.table = new long[capacity * 2];
+            this.used  = new boolean[capacity];
+        }
+
+        public void add(UUID value) {
+            if ((this.size + 1) * 2 > this.used.length) {
+                this.resize();
+            }
+            if (this.insert(value.getMostSignificantBits(), value.getLeastSignificantBits())) {
+                this.size++;
+            }
+        }
+
+        public boolean contains(UUID value) {
+            final long msb  = value.getMostSignificantBits();
+            final long lsb  = value.getLeastSignificantBits();
+            final int  mask = this.used.length - 1;
+
+            for (int i = hash(msb, lsb) & mask; this.used[i]; i = (i + 1) & mask) {
+                if (this.table[2 * i] == msb && this.table[2 * i + 1] == lsb) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        private boolean insert(long msb, long lsb) {
+            final int mask = this.used.length - 1;
+
+            int i = hash(msb, lsb) & mask;
+            for (; this.used[i]; i = (i + 1) & mask) {
+                if (this.table[2 * i] == msb && this.table[2 * i + 1] == lsb) {
+                    return false;
+                }
+            }
+            this.used[i]          = true;
+            this.table[2 * i]     = msb;
+            this.table[2 * i + 1] = lsb;
+            return true;
+        }
+
+        private void resize() {
+            final long[]    oldTable = this.table;
+            final boolean[] oldUsed  = this.used;
+
+            this.table = new long[oldTable.length * 2];
+            this.used  = new boolean[oldUsed.length * 2];
+
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i]) {
+                    this.insert(oldTable[2 * i], oldTable[2 * i + 1]);
+                }
+            }
+        }
+
+        private static int hash(long msb, long lsb) {
+            final long h = msb ^ lsb;
+            final int  x = (int) (h ^ (h >>> 32));
+            return x ^ (x >>> 16);
+        }
+
+    }
+
+}
@@ -0,0 +1,10 @@
+package eu.opertusmundi.bpm.worker.model;
+
+import java.util.UUID;
+
+/**
+ * Projection of the account identifiers used for naming account directories
+ */
+public record AccountIdentity(Integer id, UUID key, String email) {
+
+}
@@ -6,6 +6,7 @@ public enum BpmnWorkerMessageCode implements MessageCode {
     UNKNOWN,
     VARIABLE_NOT_FOUND,
     INVALID_VARIABLE_VALUE,
+    IO_ERROR,
     ;
 
     @Override
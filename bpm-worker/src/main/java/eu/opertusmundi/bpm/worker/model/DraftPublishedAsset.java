@@ -0,0 +1,8 @@
+package eu.opertusmundi.bpm.worker.model;
+
+/**
+ * Projection of a draft and the PID of the asset published from it
+ */
+public record DraftPublishedAsset(Integer id, String pid) {
+
+}
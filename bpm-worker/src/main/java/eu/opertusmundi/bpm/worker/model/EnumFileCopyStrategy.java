@@ -0,0 +1,17 @@
+package eu.opertusmundi.bpm.worker.model;
+
+public enum EnumFileCopyStrategy {
+    /**
+     * Target is a hard link to the source file
+     */
+    HARD_LINK,
+    /**
+     * Target is a copy-on-write clone of the source file
+     */
+    REFLINK,
+    /**
+     * Target is a full copy of the source file
+     */
+    COPY,
+    ;
+}
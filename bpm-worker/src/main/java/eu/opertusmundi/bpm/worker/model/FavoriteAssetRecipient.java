@@ -0,0 +1,10 @@
+package eu.opertusmundi.bpm.worker.model;
+
+import java.util.UUID;
+
+/**
+ * Projection of an asset favorite and the key of the account that owns it
+ */
+public record FavoriteAssetRecipient(Integer id, String assetId, UUID recipientKey) {
+
+}
@@ -0,0 +1,36 @@
+package eu.opertusmundi.bpm.worker.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Position of an incremental directory scan. Entries are processed in
+ * lexicographic order; the scan restarts from the first entry after the last
+ * entry of a directory is processed.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@NoArgsConstructor
+@AllArgsConstructor(staticName = "of")
+@Getter
+@Setter
+public class ScanCursor {
+
+    /**
+     * Name of the last processed entry or {@code null} if the scan has not
+     * processed any entry since it was last restarted
+     */
+    private String lastName;
+
+    public static ScanCursor start() {
+        return ScanCursor.of(null);
+    }
+
+    public ScanCursor next(String lastName) {
+        return ScanCursor.of(lastName);
+    }
+
+}
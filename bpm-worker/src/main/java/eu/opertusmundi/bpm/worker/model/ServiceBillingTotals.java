@@ -0,0 +1,51 @@
+package eu.opertusmundi.bpm.worker.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import eu.opertusmundi.common.model.payment.ServiceBillingDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Running totals of a service billing batch or of a part of it
+ */
+@NoArgsConstructor
+@AllArgsConstructor(staticName = "of")
+@Getter
+@Setter
+public class ServiceBillingTotals {
+
+    private int subscriptions;
+
+    private BigDecimal totalPrice = BigDecimal.ZERO;
+
+    private BigDecimal totalPriceExcludingTax = BigDecimal.ZERO;
+
+    private BigDecimal totalTax = BigDecimal.ZERO;
+
+    public static ServiceBillingTotals empty() {
+        return new ServiceBillingTotals();
+    }
+
+    public ServiceBillingTotals add(List<ServiceBillingDto> records) {
+        for (final ServiceBillingDto r : records) {
+            this.subscriptions++;
+            this.totalPrice             = this.totalPrice.add(r.getTotalPrice());
+            this.totalPriceExcludingTax = this.totalPriceExcludingTax.add(r.getTotalPriceExcludingTax());
+            this.totalTax               = this.totalTax.add(r.getTotalTax());
+        }
+        return this;
+    }
+
+    public ServiceBillingTotals merge(ServiceBillingTotals other) {
+        this.subscriptions         += other.subscriptions;
+        this.totalPrice             = this.totalPrice.add(other.totalPrice);
+        this.totalPriceExcludingTax = this.totalPriceExcludingTax.add(other.totalPriceExcludingTax);
+        this.totalTax               = this.totalTax.add(other.totalTax);
+        return this;
+    }
+
+}
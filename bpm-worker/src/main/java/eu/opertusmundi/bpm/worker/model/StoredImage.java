@@ -0,0 +1,8 @@
+package eu.opertusmundi.bpm.worker.model;
+
+/**
+ * Projection of an image stored in the database
+ */
+public record StoredImage(Integer id, byte[] image, String mimeType) {
+
+}
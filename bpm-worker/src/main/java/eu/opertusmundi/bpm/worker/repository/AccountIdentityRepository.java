@@ -0,0 +1,103 @@
+package eu.opertusmundi.bpm.worker.repository;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.opertusmundi.bpm.worker.model.AccountIdentity;
+import eu.opertusmundi.common.domain.AccountEntity;
+
+/**
+ * Projection queries for bulk account existence checks
+ */
+@Transactional(readOnly = true)
+public interface AccountIdentityRepository extends Repository<AccountEntity, Integer> {
+
+    /**
+     * Stream the identifiers of all accounts. The stream must be consumed and
+     * closed inside a transaction
+     *
+     * @return
+     */
+    @Query("SELECT new eu.opertusmundi.bpm.worker.model.AccountIdentity(a.id, a.key, a.email) FROM AccountEntity a")
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "5000"),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+    })
+    Stream<AccountIdentity> streamAll();
+
+    /**
+     * Find which of the specified account keys exist
+     *
+     * @param keys
+     * @return the existing keys
+     */
+    @Query("SELECT a.key FROM AccountEntity a WHERE a.key IN :keys")
+    List<UUID> findAllExistingKeys(@Param("keys") Collection<UUID> keys);
+
+    /**
+     * Find the identifiers of accounts with an id greater than the specified
+     * value, ordered by id. Used for keyset pagination
+     *
+     * @param id
+     * @param pageable
+     * @return
+     */
+    @Query("SELECT new eu.opertusmundi.bpm.worker.model.AccountIdentity(a.id, a.key, a.email) FROM AccountEntity a WHERE a.id > :id ORDER BY a.id")
+    List<AccountIdentity> findAllAfter(@Param("id") int id, Pageable pageable);
+
+    /**
+     * Find the identifiers of provider accounts with an id greater than the
+     * specified value, ordered by id. Used for keyset pagination
+     *
+     * @param id
+     * @param pageable
+     * @return
+     */
+    @Query(
+        "SELECT new eu.opertusmundi.bpm.worker.model.AccountIdentity(a.id, a.key, a.email) "
+      + "FROM AccountEntity a WHERE a.id > :id AND a.profile.provider IS NOT NULL ORDER BY a.id"
+    )
+    List<AccountIdentity> findAllProvidersAfter(@Param("id") int id, Pageable pageable);
+
+    /**
+     * Find the identifiers of accounts of a partition with an id greater than
+     * the specified value, ordered by id. An account belongs to partition
+     * {@code index} if {@code id % count == index}; since the partition of an
+     * account depends only on its id, partitions do not change when accounts
+     * are created or deleted. Used for keyset pagination of partitions
+     *
+     * @param id
+     * @param count
+     * @param index
+     * @param pageable
+     * @return
+     */
+    @Query(
+        "SELECT new eu.opertusmundi.bpm.worker.model.AccountIdentity(a.id, a.key, a.email) "
+      + "FROM AccountEntity a WHERE a.id > :id AND MOD(a.id, :count) = :index ORDER BY a.id"
+    )
+    List<AccountIdentity> findAllInPartitionAfter(
+        @Param("id") int id, @Param("count") int count, @Param("index") int index, Pageable pageable
+    );
+
+    boolean existsById(Integer id);
+
+    boolean existsByKey(UUID key);
+
+    boolean existsByEmail(String email);
+
+}
@@ -0,0 +1,44 @@
+package eu.opertusmundi.bpm.worker.repository;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.opertusmundi.bpm.worker.model.StoredImage;
+import eu.opertusmundi.common.domain.AccountProfileEntity;
+
+/**
+ * Image column queries for account profiles
+ */
+@Transactional(readOnly = true)
+public interface AccountProfileImageRepository extends Repository<AccountProfileEntity, Integer> {
+
+    /**
+     * Find the images of profiles with an id greater than the specified value,
+     * ordered by id. Used for keyset pagination
+     *
+     * @param id
+     * @param pageable
+     * @return
+     */
+    @Query(
+        "SELECT new eu.opertusmundi.bpm.worker.model.StoredImage(p.id, p.image, p.imageMimeType) "
+      + "FROM AccountProfileEntity p WHERE p.id > :id AND p.image IS NOT NULL ORDER BY p.id"
+    )
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "100"),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+    })
+    List<StoredImage> findAllImagesAfter(@Param("id") int id, Pageable pageable);
+
+}
@@ -0,0 +1,45 @@
+package eu.opertusmundi.bpm.worker.repository;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.opertusmundi.bpm.worker.model.StoredImage;
+import eu.opertusmundi.common.domain.CustomerProfessionalEntity;
+
+/**
+ * Logo image column queries for professional customers. Both provider and
+ * professional consumer logos are stored in professional customer records
+ */
+@Transactional(readOnly = true)
+public interface CustomerLogoImageRepository extends Repository<CustomerProfessionalEntity, Integer> {
+
+    /**
+     * Find the logo images of professional customers with an id greater than
+     * the specified value, ordered by id. Used for keyset pagination
+     *
+     * @param id
+     * @param pageable
+     * @return
+     */
+    @Query(
+        "SELECT new eu.opertusmundi.bpm.worker.model.StoredImage(c.id, c.logoImage, c.logoImageMimeType) "
+      + "FROM CustomerProfessionalEntity c WHERE c.id > :id AND c.logoImage IS NOT NULL ORDER BY c.id"
+    )
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "100"),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+    })
+    List<StoredImage> findAllLogoImagesAfter(@Param("id") int id, Pageable pageable);
+
+}
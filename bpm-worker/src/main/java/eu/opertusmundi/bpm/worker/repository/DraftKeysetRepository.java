@@ -0,0 +1,50 @@
+package eu.opertusmundi.bpm.worker.repository;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.opertusmundi.bpm.worker.model.DraftPublishedAsset;
+import eu.opertusmundi.common.domain.ProviderAssetDraftEntity;
+
+/**
+ * Keyset pagination queries for drafts. Results are ordered by id and no count
+ * query is executed
+ */
+@Transactional(readOnly = true)
+public interface DraftKeysetRepository extends Repository<ProviderAssetDraftEntity, Integer> {
+
+    /**
+     * Find the published assets of drafts created by the specified publisher
+     * with an id greater than the specified value, ordered by id
+     *
+     * @param publisherKey
+     * @param id
+     * @param pageable
+     * @return
+     */
+    @Query(
+        "SELECT new eu.opertusmundi.bpm.worker.model.DraftPublishedAsset(d.id, d.assetPublished) "
+      + "FROM ProviderAssetDraftEntity d "
+      + "WHERE d.publisher.key = :publisherKey AND d.assetPublished IS NOT NULL AND d.id > :id ORDER BY d.id"
+    )
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "100"),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+    })
+    List<DraftPublishedAsset> findAllPublishedByPublisherAfter(
+        @Param("publisherKey") UUID publisherKey, @Param("id") int id, Pageable pageable
+    );
+
+}
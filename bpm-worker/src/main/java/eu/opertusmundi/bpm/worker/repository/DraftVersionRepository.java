@@ -0,0 +1,24 @@
+package eu.opertusmundi.bpm.worker.repository;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.opertusmundi.common.domain.ProviderAssetDraftEntity;
+
+/**
+ * Lightweight queries for checking the modification version of a draft
+ * without loading and deserializing the draft command
+ */
+@Transactional(readOnly = true)
+public interface DraftVersionRepository extends Repository<ProviderAssetDraftEntity, Integer> {
+
+    @Query("SELECT d.modifiedOn FROM ProviderAssetDraftEntity d WHERE d.key = :key")
+    Optional<ZonedDateTime> findModifiedOnByKey(@Param("key") UUID key);
+
+}
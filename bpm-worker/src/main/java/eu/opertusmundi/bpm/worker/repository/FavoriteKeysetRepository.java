@@ -0,0 +1,64 @@
+package eu.opertusmundi.bpm.worker.repository;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.opertusmundi.bpm.worker.model.FavoriteAssetRecipient;
+import eu.opertusmundi.common.domain.FavoriteAssetEntity;
+import eu.opertusmundi.common.model.favorite.EnumAssetFavoriteAction;
+
+/**
+ * Keyset pagination queries for favorites. Results are ordered by id and no
+ * count query is executed
+ */
+@Transactional(readOnly = true)
+public interface FavoriteKeysetRepository extends Repository<FavoriteAssetEntity, Integer> {
+
+    /**
+     * Find favorites of assets published by the specified provider with an id
+     * greater than the specified value, ordered by id. Favorites for which a
+     * notification has already been sent are excluded
+     *
+     * @param providerId
+     * @param action
+     * @param id
+     * @param pageable
+     * @return
+     */
+    @Query(
+        "SELECT new eu.opertusmundi.bpm.worker.model.FavoriteAssetRecipient(f.id, f.assetId, a.key) "
+      + "FROM FavoriteAssetEntity f JOIN f.account a "
+      + "WHERE f.assetProvider = :providerId AND f.action = :action AND f.notificationSent = false AND f.id > :id "
+      + "ORDER BY f.id"
+    )
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "100"),
+        @QueryHint(name = HINT_READONLY, value = "true"),
+    })
+    List<FavoriteAssetRecipient> findAllRecipientsByAssetProviderAfter(
+        @Param("providerId") Integer providerId,
+        @Param("action") EnumAssetFavoriteAction action,
+        @Param("id") int id,
+        Pageable pageable
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE FavoriteAssetEntity f SET f.notificationSent = true, f.notificationSentAt = :sentAt WHERE f.id IN :ids")
+    int setNotificationSent(@Param("ids") Collection<Integer> ids, @Param("sentAt") ZonedDateTime sentAt);
+
+}
@@ -0,0 +1,3 @@
+package eu.opertusmundi.bpm.worker.repository;
+
+public class _Marker {}
@@ -0,0 +1,14 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import eu.opertusmundi.bpm.worker.model.AccountExistenceIndex;
+
+public interface AccountExistenceIndexService {
+
+    /**
+     * Load the identifiers of all accounts with a single streaming query
+     *
+     * @return a snapshot of all account identifiers
+     */
+    AccountExistenceIndex load();
+
+}
@@ -48,9 +48,18 @@ public class BaseWorkerService {
     
     protected Integer getVariableAsInteger(
         ExternalTask externalTask, ExternalTaskService externalTaskService, String name
+    ) throws BpmnWorkerException {
+        return this.getVariableAsInteger(externalTask, externalTaskService, name, null);
+    }
+
+    protected Integer getVariableAsInteger(
+        ExternalTask externalTask, ExternalTaskService externalTaskService, String name, Integer defaultValue
     ) throws BpmnWorkerException {
         final Integer value = (Integer) externalTask.getVariable(name);
         if (value == null) {
+            if (defaultValue != null) {
+                return defaultValue;
+            }
             logger.error("Expected non empty variable value. [name={}]", name);
 
             throw this.buildVariableNotFoundException(name);
@@ -0,0 +1,42 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.UUID;
+
+import eu.opertusmundi.common.model.catalogue.client.CatalogueItemDto;
+
+/**
+ * Bounded cache of published catalogue items shared by all tasks of a worker
+ * instance.
+ *
+ * <p>
+ * Entries expire after a fixed time, since items may be updated by other
+ * worker instances or by the API server. Tasks that publish or unpublish
+ * assets must invalidate the affected entries. Returned items are shared
+ * between tasks and must be treated as read-only.
+ */
+public interface CatalogueItemCache {
+
+    /**
+     * Find a published item
+     *
+     * @param publisherKey the publisher key
+     * @param pid the item PID
+     * @return
+     */
+    CatalogueItemDto findOne(UUID publisherKey, String pid);
+
+    /**
+     * Discard the cached instance of an item
+     *
+     * @param pid
+     */
+    void invalidate(String pid);
+
+    /**
+     * Discard the cached instances of all items of a publisher
+     *
+     * @param publisherKey
+     */
+    void invalidatePublisher(UUID publisherKey);
+
+}
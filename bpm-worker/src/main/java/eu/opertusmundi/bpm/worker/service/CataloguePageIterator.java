@@ -0,0 +1,170 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.opertusmundi.common.model.BasicMessageCode;
+import eu.opertusmundi.common.model.ServiceException;
+
+/**
+ * Iterates catalogue query results page by page.
+ *
+ * <p>
+ * Items are de-duplicated by identifier, hence items that move to a later page
+ * while the catalogue is modified are returned only once. Iteration stops when
+ * a page returns no items or only items that have already been returned.
+ *
+ * <p>
+ * Two modes are supported:
+ * <ul>
+ * <li>{@link #scan}: pages are read in order and the next page is fetched in
+ * the background while the current page is processed.</li>
+ * <li>{@link #drain}: the first page is read repeatedly. Use this mode when
+ * the caller removes the returned items from the catalogue. If the first page
+ * returns only items that have already been returned, the items have not been
+ * removed and a {@link ServiceException} is thrown.</li>
+ * </ul>
+ */
+public class CataloguePageIterator<T> implements Iterator<List<T>> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CataloguePageIterator.class);
+
+    private final IntFunction<List<T>> fetch;
+
+    private final Function<T, String> identifier;
+
+    private final Executor prefetchExecutor;
+
+    private final boolean drain;
+
+    private final Set<String> visited = new HashSet<>();
+
+    private int page = 0;
+
+    private CompletableFuture<List<T>> prefetched;
+
+    private List<T> current;
+
+    private boolean completed = false;
+
+    private CataloguePageIterator(
+        IntFunction<List<T>> fetch, Function<T, String> identifier, Executor prefetchExecutor, boolean drain
+    ) {
+        this.fetch            = fetch;
+        this.identifier       = identifier;
+        this.prefetchExecutor = prefetchExecutor;
+        this.drain            = drain;
+    }
+
+    /**
+     * Create an iterator that reads pages in order
+     *
+     * @param <T>
+     * @param fetch returns the items of the page with the specified index
+     * @param identifier returns the unique identifier of an item
+     * @param prefetchExecutor executor for fetching the next page in the
+     *        background. If {@code null}, pages are fetched on demand
+     * @return
+     */
+    public static <T> CataloguePageIterator<T> scan(
+        IntFunction<List<T>> fetch, Function<T, String> identifier, Executor prefetchExecutor
+    ) {
+        return new CataloguePageIterator<>(fetch, identifier, prefetchExecutor, false);
+    }
+
+    /**
+     * Create an iterator that reads the first page until it returns no items.
+     * {@link #hasNext()} throws a {@link ServiceException} if the first page
+     * returns only items that have already been returned
+     *
+     * @param <T>
+     * @param fetch returns the items of the page with the specified index
+     * @param identifier returns the unique identifier of an item
+     * @return
+     */
+    public static <T> CataloguePageIterator<T> drain(IntFunction<List<T>> fetch, Function<T, String> identifier) {
+        return new CataloguePageIterator<>(fetch, identifier, null, true);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.current == null && !this.completed) {
+            this.current = this.advance();
+        }
+        return this.current != null;
+    }
+
+    @Override
+    public List<T> next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final List<T> result = this.current;
+        this.current = null;
+        return result;
+    }
+
+    private List<T> advance() {
+        final List<T> items = this.fetchCurrentPage();
+
+        if (!this.drain) {
+            this.page++;
+            if (!items.isEmpty() && this.prefetchExecutor != null) {
+                final int nextPage = this.page;
+                this.prefetched = CompletableFuture.supplyAsync(() -> this.fetch.apply(nextPage), this.prefetchExecutor);
+            }
+        }
+
+        final List<T> result = items.stream()
+            .filter(i -> this.visited.add(this.identifier.apply(i)))
+            .toList();
+
+        if (result.isEmpty()) {
+            this.completed = true;
+            if (this.prefetched != null) {
+                this.prefetched.cancel(true);
+            }
+            if (!items.isEmpty()) {
+                if (this.drain) {
+                    // Returned items were not removed from the catalogue
+                    throw new ServiceException(BasicMessageCode.InternalServerError, String.format(
+                        "Catalogue items were not removed [processed=%d, remaining=%d]", this.visited.size(), items.size()
+                    ));
+                }
+                logger.warn("Catalogue page returned no new items. Stopping iteration [page={}]", this.page);
+            }
+            return null;
+        }
+
+        return result;
+    }
+
+    private List<T> fetchCurrentPage() {
+        final CompletableFuture<List<T>> future = this.prefetched;
+        this.prefetched = null;
+
+        if (future == null) {
+            return this.fetch.apply(this.drain ? 0 : this.page);
+        }
+        try {
+            return future.join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof final RuntimeException runtimeEx) {
+                throw runtimeEx;
+            }
+            throw ex;
+        }
+    }
+
+}
@@ -28,6 +28,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
@@ -94,6 +96,7 @@ public class DefaultAccountActivationService implements AccountActivationService
     private final KeycloakAdminService                    keycloakAdminService;
     private final MailMessageHelper                       mailMessageHelper;
     private final ObjectProvider<EmailServiceFeignClient> mailClient;
+    private final UserGeodataConfigurationCache           userGeodataConfigurationCache;
 
     public DefaultAccountActivationService(
         AccountClientService                    accountClientService,
@@ -103,16 +106,18 @@ public class DefaultAccountActivationService implements AccountActivationService
         GeodataConfiguration                    geodataConfiguration,
         KeycloakAdminService                    keycloakAdminService,
         MailMessageHelper                       mailMessageHelper,
-        ObjectProvider<EmailServiceFeignClient> mailClient
+        ObjectProvider<EmailServiceFeignClient> mailClient,
+        UserGeodataConfigurationCache           userGeodataConfigurationCache
     ) {
-        this.accountClientService        = accountClientService;
-        this.accountRepository           = accountRepository;
-        this.consumerRegistrationService = consumerRegistrationService;
-        this.geodataConfiguration        = geodataConfiguration;
-        this.keycloakAdminService        = keycloakAdminService;
-        this.mailClient                  = mailClient;
-        this.mailMessageHelper           = mailMessageHelper;
-        this.userFileNamingStrategy      = userFileNamingStrategy;
+        this.accountClientService          = accountClientService;
+        this.accountRepository             = accountRepository;
+        this.consumerRegistrationService   = consumerRegistrationService;
+        this.geodataConfiguration          = geodataConfiguration;
+        this.keycloakAdminService          = keycloakAdminService;
+        this.mailClient                    = mailClient;
+        this.mailMessageHelper             = mailMessageHelper;
+        this.userFileNamingStrategy        = userFileNamingStrategy;
+        this.userGeodataConfigurationCache = userGeodataConfigurationCache;
     }
 
     @PostConstruct
@@ -415,6 +420,20 @@ public class DefaultAccountActivationService implements AccountActivationService
         account.getProfile().setGeodataShard(geodataShard);
         account = this.accountRepository.saveAndFlush(account);
 
+        // The geodata shard has been updated. The cache entry is removed only
+        // after the transaction commits; otherwise a concurrent lookup could
+        // cache the previous shard again
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    DefaultAccountActivationService.this.userGeodataConfigurationCache.invalidate(userKey);
+                }
+            });
+        } else {
+            this.userGeodataConfigurationCache.invalidate(userKey);
+        }
+
         return account.toDto(true);
     }
 
@@ -13,7 +13,6 @@ import java.util.UUID;
 
 import javax.sql.DataSource;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringSubstitutor;
@@ -29,8 +28,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ResourceLoader;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
@@ -41,7 +40,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import eu.opertusmundi.bpm.worker.model.DeleteAccountOperationContext;
-import eu.opertusmundi.common.domain.ProviderAssetDraftEntity;
+import eu.opertusmundi.bpm.worker.model.DraftPublishedAsset;
+import eu.opertusmundi.bpm.worker.repository.DraftKeysetRepository;
 import eu.opertusmundi.common.model.BasicMessageCode;
 import eu.opertusmundi.common.model.EnumAccountType;
 import eu.opertusmundi.common.model.EnumRole;
@@ -51,7 +51,6 @@ import eu.opertusmundi.common.model.account.AccountClientDto;
 import eu.opertusmundi.common.model.account.AccountDto;
 import eu.opertusmundi.common.model.account.EnumAccountActiveTask;
 import eu.opertusmundi.common.model.asset.service.UserServiceDto;
-import eu.opertusmundi.common.model.catalogue.CatalogueResult;
 import eu.opertusmundi.common.model.catalogue.client.CatalogueAssetQuery;
 import eu.opertusmundi.common.model.catalogue.client.CatalogueItemDetailsDto;
 import eu.opertusmundi.common.model.catalogue.client.CatalogueItemDto;
@@ -60,7 +59,6 @@ import eu.opertusmundi.common.model.keycloak.server.UserQueryDto;
 import eu.opertusmundi.common.model.workflow.EnumProcessInstanceVariable;
 import eu.opertusmundi.common.model.workflow.EnumWorkflow;
 import eu.opertusmundi.common.repository.AccountRepository;
-import eu.opertusmundi.common.repository.DraftRepository;
 import eu.opertusmundi.common.service.AccountClientService;
 import eu.opertusmundi.common.service.CatalogueService;
 import eu.opertusmundi.common.service.ElasticSearchService;
@@ -76,7 +74,13 @@ import feign.FeignException.FeignClientException;
 public class DefaultAccountDataDeletionService implements AccountDataDeletionService, InitializingBean {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultAccountDataDeletionService.class);
-    
+
+    @Value("${opertusmundi.bpm.worker.account-deletion.catalogue-batch-size:100}")
+    private int catalogueBatchSize;
+
+    @Value("${opertusmundi.bpm.worker.account-deletion.draft-batch-size:100}")
+    private int draftBatchSize;
+
     @Autowired
     private ResourceLoader resourceLoader;
 
@@ -105,16 +109,22 @@ public class DefaultAccountDataDeletionService implements AccountDataDeletionSer
 
     @Autowired
     private Path userServiceDirectory;
+
+    @Autowired
+    private TrashService trashService;
    
     @Autowired
     private AccountRepository accountRepository;
     
     @Autowired
-    private DraftRepository draftRepository;
+    private DraftKeysetRepository draftKeysetRepository;
 
     @Autowired
     private CatalogueService catalogueService;
 
+    @Autowired
+    private CatalogueItemCache catalogueItemCache;
+
     @Autowired
     private UserServiceService userServiceService;
 
@@ -133,6 +143,9 @@ public class DefaultAccountDataDeletionService implements AccountDataDeletionSer
     @Autowired
     private BpmEngineUtils bpmEngineUtils;
 
+    @Autowired
+    private UserGeodataConfigurationCache userGeodataConfigurationCache;
+
     @Override
     public void afterPropertiesSet() throws Exception {
         jdbcTemplate = new JdbcTemplate(dataSource);
@@ -203,6 +216,8 @@ public class DefaultAccountDataDeletionService implements AccountDataDeletionSer
         }
 
         this.deleteDatabaseRecords(externalTask, externalTaskService, ctx);
+
+        this.userGeodataConfigurationCache.invalidate(ctx.getUserKey());
     }
 
     @Override
@@ -329,19 +344,24 @@ public class DefaultAccountDataDeletionService implements AccountDataDeletionSer
         if (ctx.getUserType() == EnumAccountType.VENDOR) {
             return;
         }
-        try {         
-            CatalogueAssetQuery query = CatalogueAssetQuery.builder()
-                .publisherKey(ctx.getUserKey().toString())
-                .page(0)
-                .size(20)
-                .build();
-
-            CatalogueResult<CatalogueItemDto> result = this.catalogueService.findAll(null, query);
+        try {
+            // Unpublished items are removed from the results, hence the
+            // first page is read until no new items are returned
+            final CataloguePageIterator<CatalogueItemDto> pages = CataloguePageIterator.drain(
+                page -> this.catalogueService.findAll(null, CatalogueAssetQuery.builder()
+                    .publisherKey(ctx.getUserKey().toString())
+                    .page(page)
+                    .size(this.catalogueBatchSize)
+                    .build()
+                ).getResult().getItems(),
+                CatalogueItemDto::getId
+            );
 
-            while (!result.getResult().getItems().isEmpty()) {
-                for(final CatalogueItemDto item: result.getResult().getItems()) {
+            while (pages.hasNext()) {
+                for (final CatalogueItemDto item : pages.next()) {
                     ctx.getPid().add(item.getId());
                     final CatalogueItemDetailsDto itemDetails = this.catalogueService.unpublish(ctx.getUserKey(), item.getId());
+                    this.catalogueItemCache.invalidate(item.getId());
 
                     // Delete ingested data
                     StreamUtils.from(itemDetails.getIngestionInfo()).forEach(d -> {
@@ -352,15 +372,6 @@ public class DefaultAccountDataDeletionService implements AccountDataDeletionSer
                     });
                 }
 
-                // Fetch next batch
-                query = CatalogueAssetQuery.builder()
-                    .publisherKey(ctx.getUserKey().toString())
-                    .page(0)
-                    .size(20)
-                    .build();
-
-                result = this.catalogueService.findAll(null, query);
-
                 // Extend lock duration
                 ctx.getExtendLock().run();
             }
@@ -379,20 +390,18 @@ public class DefaultAccountDataDeletionService implements AccountDataDeletionSer
             return;
         }
         try {
-            final Direction direction   = Direction.ASC;
-            PageRequest     pageRequest = PageRequest.of(0, 10, Sort.by(direction, "id"));
-
-            Page<ProviderAssetDraftEntity> drafts = this.draftRepository.findAllByPublisher(ctx.getUserKey(), pageRequest);
+            final KeysetCursor<DraftPublishedAsset> drafts = KeysetCursor.<DraftPublishedAsset>of(
+                (after, pageable) -> this.draftKeysetRepository.findAllPublishedByPublisherAfter(ctx.getUserKey(), after, pageable),
+                DraftPublishedAsset::id,
+                this.draftBatchSize
+            );
 
-            while (!drafts.isEmpty()) {
-                for (final ProviderAssetDraftEntity d : drafts.getContent()) {
-                    if (!StringUtils.isBlank(d.getAssetPublished()) && !ctx.getPid().contains(d.getAssetPublished())) {
-                        ctx.getPid().add(d.getAssetPublished());
+            while (drafts.hasNext()) {
+                for (final DraftPublishedAsset d : drafts.next()) {
+                    if (!StringUtils.isBlank(d.pid()) && !ctx.getPid().contains(d.pid())) {
+                        ctx.getPid().add(d.pid());
                     }
                 }
-                // Fetch next batch
-                pageRequest = pageRequest.next();
-                drafts      = this.draftRepository.findAllByPublisher(ctx.getUserKey(), pageRequest);
                 // Extend lock duration
                 ctx.getExtendLock().run();
             }
@@ -436,12 +445,12 @@ public class DefaultAccountDataDeletionService implements AccountDataDeletionSer
             // Asset symbolic links to draft data
             for (final String p : ctx.getPid()) {
                 final Path assetPath = Paths.get(this.assetDirectory.toString(), p);
-                FileUtils.deleteQuietly(assetPath.toFile());
+                this.trashService.delete(assetPath);
             }
 
             // Delete all contracts specific to the user
             final Path contractPath = Paths.get(this.contractDirectory.toString(), ctx.getUserId().toString());
-            FileUtils.deleteQuietly(contractPath.toFile());
+            this.trashService.delete(contractPath);
 
             // Delete user data
             final Path userPath = Paths.get(this.userDirectory.toString(), ctx.getUserName().toString());
@@ -451,29 +460,29 @@ public class DefaultAccountDataDeletionService implements AccountDataDeletionSer
                 for (final String fileName : allFiles) {
                     if (!fileName.startsWith(".")) {
                         final Path filePath = Paths.get(userPath.toString(), fileName);
-                        FileUtils.deleteQuietly(filePath.toFile());
+                        this.trashService.delete(filePath);
                     }
                 }
             }
             if (ctx.isAccountDeleted()) {
-                FileUtils.deleteQuietly(userPath.toFile());
+                this.trashService.delete(userPath);
             }
 
             // Delete all user drafts
             final Path draftPath = Paths.get(this.draftDirectory.toString(), ctx.getUserKey().toString());
-            FileUtils.deleteQuietly(draftPath.toFile());
+            this.trashService.delete(draftPath);
 
             // Delete all invoices specific to the user
             final Path invoicePath = Paths.get(this.invoiceDirectory.toString(), ctx.getUserId().toString());
-            FileUtils.deleteQuietly(invoicePath.toFile());
+            this.trashService.delete(invoicePath);
 
             // Delete all orders specific to the user
             final Path orderPath = Paths.get(this.orderDirectory.toString(), ctx.getUserId().toString());
-            FileUtils.deleteQuietly(orderPath.toFile());
+            this.trashService.delete(orderPath);
 
             // Delete all user service files
             final Path userServicePath = Paths.get(this.userServiceDirectory.toString(), ctx.getUserKey().toString());
-            FileUtils.deleteQuietly(userServicePath.toFile());
+            this.trashService.delete(userServicePath);
 
             // Extend lock duration
             ctx.getExtendLock().run();
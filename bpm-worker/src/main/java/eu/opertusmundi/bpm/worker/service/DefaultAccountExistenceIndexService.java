@@ -0,0 +1,60 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import eu.opertusmundi.bpm.worker.model.AccountExistenceIndex;
+import eu.opertusmundi.bpm.worker.model.AccountIdentity;
+import eu.opertusmundi.bpm.worker.repository.AccountIdentityRepository;
+
+@Service
+public class DefaultAccountExistenceIndexService implements AccountExistenceIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultAccountExistenceIndexService.class);
+
+    private static final int EXPECTED_ACCOUNTS = 1024;
+
+    private final AccountIdentityRepository accountIdentityRepository;
+
+    @Autowired
+    public DefaultAccountExistenceIndexService(AccountIdentityRepository accountIdentityRepository) {
+        this.accountIdentityRepository = accountIdentityRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AccountExistenceIndex load() {
+        final StopWatch                     watch  = StopWatch.createStarted();
+        final BitSet                        ids    = new BitSet();
+        final AccountExistenceIndex.UuidSet keys   = new AccountExistenceIndex.UuidSet(EXPECTED_ACCOUNTS);
+        final Set<String>                   emails = new HashSet<>(EXPECTED_ACCOUNTS * 2);
+
+        try (final Stream<AccountIdentity> accounts = this.accountIdentityRepository.streamAll()) {
+            accounts.forEach(a -> {
+                if (a.id() != null && a.id() >= 0) {
+                    ids.set(a.id());
+                }
+                if (a.key() != null) {
+                    keys.add(a.key());
+                }
+                if (a.email() != null) {
+                    emails.add(a.email());
+                }
+            });
+        }
+
+        logger.info("Loaded account index [accounts={}, duration={}ms]", keys.size(), watch.getTime());
+
+        return new AccountExistenceIndex(ids, keys, emails);
+    }
+
+}
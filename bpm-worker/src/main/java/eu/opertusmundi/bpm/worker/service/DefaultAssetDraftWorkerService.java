@@ -26,30 +26,32 @@ import eu.opertusmundi.common.service.IngestService;
 import eu.opertusmundi.common.service.ProviderAssetService;
 import eu.opertusmundi.common.service.UserServiceService;
 import eu.opertusmundi.common.service.messaging.MessageService;
-import eu.opertusmundi.common.service.ogc.UserGeodataConfigurationResolver;
 
 @Service
 @Transactional
 public class DefaultAssetDraftWorkerService extends BaseWorkerService implements AssetDraftWorkerService {
 
+    private final DraftSnapshotCache               draftSnapshotCache;
     private final IngestService                    ingestService;
     private final MessageService                   messageService;
     private final ProviderAssetService             providerAssetService;
-    private final UserGeodataConfigurationResolver userGeodataConfigurationResolver;
+    private final UserGeodataConfigurationCache    userGeodataConfigurationCache;
     private final UserServiceService               userServiceService;
 
     @Autowired
     public DefaultAssetDraftWorkerService(
+        DraftSnapshotCache               draftSnapshotCache,
         IngestService                    ingestService,
         MessageService                   messageService,
         ProviderAssetService             providerAssetService,
-        UserGeodataConfigurationResolver userGeodataConfigurationResolver,
+        UserGeodataConfigurationCache    userGeodataConfigurationCache,
         UserServiceService               userServiceService
     ) {
+        this.draftSnapshotCache               = draftSnapshotCache;
         this.ingestService                    = ingestService;
         this.messageService                   = messageService;
         this.providerAssetService             = providerAssetService;
-        this.userGeodataConfigurationResolver = userGeodataConfigurationResolver;
+        this.userGeodataConfigurationCache    = userGeodataConfigurationCache;
         this.userServiceService               = userServiceService;
     }
     
@@ -59,12 +61,12 @@ public class DefaultAssetDraftWorkerService extends BaseWorkerService implements
     ) throws JsonMappingException, JsonProcessingException {
         final UUID          draftKey     = this.getVariableAsUUID(externalTask, externalTaskService, "draftKey");
         final UUID          publisherKey = this.getVariableAsUUID(externalTask, externalTaskService, "publisherKey");
-        final AssetDraftDto draft        = providerAssetService.findOneDraft(draftKey);
+        final AssetDraftDto draft        = draftSnapshotCache.findOneDraft(draftKey);
         if (draft.getStatus() != EnumProviderAssetDraftStatus.CANCELLED) {
             final String errorDetails  = this.getErrorDetails(externalTask, externalTaskService);
             final String errorMessages = this.getErrorMessages(externalTask, externalTaskService);
 
-            var           userGeodataConfig = userGeodataConfigurationResolver.resolveFromUserKey(publisherKey, EnumGeodataWorkspace.PUBLIC);
+            var           userGeodataConfig = userGeodataConfigurationCache.resolveFromUserKey(publisherKey, EnumGeodataWorkspace.PUBLIC);
             List<Message> messages          = objectMapper.readValue(errorMessages, new TypeReference<List<Message>>() { });
     
             // Remove all ingested resources
@@ -80,6 +82,7 @@ public class DefaultAssetDraftWorkerService extends BaseWorkerService implements
     
             // Reset draft
             providerAssetService.cancelPublishDraft(publisherKey, draftKey, errorDetails, messages);
+            draftSnapshotCache.invalidate(draftKey);
             // Send message to provider
             var subject        = String.format("Asset Publish Failure: %s %s", draft.getTitle(), draft.getVersion());
             var text           = draft.getHelpdeskErrorMessage();
@@ -97,7 +100,7 @@ public class DefaultAssetDraftWorkerService extends BaseWorkerService implements
         final String errorDetails  = this.getErrorDetails(externalTask, externalTaskService);
         final String errorMessages = this.getErrorMessages(externalTask, externalTaskService);
 
-        var userGeodataConfig = userGeodataConfigurationResolver.resolveFromUserKey(ownerKey, EnumGeodataWorkspace.PRIVATE);
+        var userGeodataConfig = userGeodataConfigurationCache.resolveFromUserKey(ownerKey, EnumGeodataWorkspace.PRIVATE);
 
         List<Message> messages = objectMapper.readValue(errorMessages, new TypeReference<List<Message>>() {});
 
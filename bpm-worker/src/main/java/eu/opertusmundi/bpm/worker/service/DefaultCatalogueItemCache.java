@@ -0,0 +1,68 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import eu.opertusmundi.common.model.catalogue.client.CatalogueItemDto;
+import eu.opertusmundi.common.service.CatalogueService;
+
+@Service
+public class DefaultCatalogueItemCache implements CatalogueItemCache {
+
+    private final CatalogueService catalogueService;
+
+    private final Cache<String, CachedItem> cache;
+
+    @Autowired
+    public DefaultCatalogueItemCache(
+        CatalogueService catalogueService,
+        @Value("${opertusmundi.bpm.worker.catalogue-cache.max-size:1000}") long maxSize,
+        @Value("${opertusmundi.bpm.worker.catalogue-cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.catalogueService = catalogueService;
+
+        // Size based eviction uses the Window TinyLFU policy, hence popular
+        // items are retained even if many items are accessed only once
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .build();
+    }
+
+    @Override
+    public CatalogueItemDto findOne(UUID publisherKey, String pid) {
+        final CachedItem cached = this.cache.getIfPresent(pid);
+        if (cached != null && Objects.equals(cached.publisherKey(), publisherKey)) {
+            return cached.item();
+        }
+
+        final CatalogueItemDto item = this.catalogueService.findOne(null, pid, publisherKey, false);
+        if (item != null) {
+            this.cache.put(pid, new CachedItem(publisherKey, item));
+        }
+        return item;
+    }
+
+    @Override
+    public void invalidate(String pid) {
+        this.cache.invalidate(pid);
+    }
+
+    @Override
+    public void invalidatePublisher(UUID publisherKey) {
+        this.cache.asMap().values().removeIf(i -> Objects.equals(i.publisherKey(), publisherKey));
+    }
+
+    private record CachedItem(UUID publisherKey, CatalogueItemDto item) {
+
+    }
+
+}
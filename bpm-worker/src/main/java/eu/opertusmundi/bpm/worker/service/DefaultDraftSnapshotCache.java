@@ -0,0 +1,157 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import eu.opertusmundi.bpm.worker.repository.DraftVersionRepository;
+import eu.opertusmundi.common.model.asset.AssetDraftDto;
+import eu.opertusmundi.common.service.ProviderAssetService;
+
+@Service
+public class DefaultDraftSnapshotCache implements DraftSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultDraftSnapshotCache.class);
+
+    private final DraftVersionRepository draftVersionRepository;
+    private final ObjectMapper           objectMapper;
+    private final ProviderAssetService   providerAssetService;
+
+    private final Cache<UUID, DraftSnapshot> cache;
+
+    @Autowired
+    public DefaultDraftSnapshotCache(
+        DraftVersionRepository draftVersionRepository,
+        ObjectMapper           objectMapper,
+        ProviderAssetService   providerAssetService,
+        @Value("${opertusmundi.bpm.worker.draft-cache.max-size:200}") long maxSize,
+        @Value("${opertusmundi.bpm.worker.draft-cache.ttl-seconds:600}") long ttlSeconds
+    ) {
+        this.draftVersionRepository = draftVersionRepository;
+        this.objectMapper           = objectMapper;
+        this.providerAssetService   = providerAssetService;
+
+        // Snapshots are soft referenced so that the garbage collector can
+        // reclaim them under memory pressure
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .softValues()
+            .build();
+    }
+
+    @Override
+    public AssetDraftDto findOneDraft(UUID publisherKey, UUID draftKey) {
+        final DraftSnapshot snapshot = this.findValidSnapshot(draftKey);
+
+        if (snapshot != null && Objects.equals(snapshot.publisherKey, publisherKey)) {
+            final AssetDraftDto draft = this.restore(draftKey, snapshot);
+            if (draft != null) {
+                return draft;
+            }
+        }
+
+        final AssetDraftDto draft = this.providerAssetService.findOneDraft(publisherKey, draftKey, false);
+
+        return this.put(draftKey, draft);
+    }
+
+    @Override
+    public AssetDraftDto findOneDraft(UUID draftKey) {
+        final DraftSnapshot snapshot = this.findValidSnapshot(draftKey);
+
+        if (snapshot != null) {
+            final AssetDraftDto draft = this.restore(draftKey, snapshot);
+            if (draft != null) {
+                return draft;
+            }
+        }
+
+        final AssetDraftDto draft = this.providerAssetService.findOneDraft(draftKey);
+
+        return this.put(draftKey, draft);
+    }
+
+    @Override
+    public void invalidate(UUID draftKey) {
+        this.cache.invalidate(draftKey);
+    }
+
+    private DraftSnapshot findValidSnapshot(UUID draftKey) {
+        final DraftSnapshot snapshot = this.cache.getIfPresent(draftKey);
+        if (snapshot == null) {
+            return null;
+        }
+
+        // The draft may have been updated by another worker instance or by
+        // the API server. Compare the modification versions before reusing
+        // the snapshot
+        final ZonedDateTime version = this.draftVersionRepository.findModifiedOnByKey(draftKey).orElse(null);
+        if (version == null || !Objects.equals(version.toInstant(), snapshot.version)) {
+            logger.debug("Draft snapshot is stale [draftKey={}]", draftKey);
+
+            this.cache.invalidate(draftKey);
+            return null;
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Cache a serialized copy of the draft. Every lookup deserializes a new
+     * instance, hence concurrent tasks never share a mutable draft
+     */
+    private AssetDraftDto put(UUID draftKey, AssetDraftDto draft) {
+        if (draft == null || draft.getModifiedOn() == null) {
+            return draft;
+        }
+        try {
+            final UUID publisherKey = draft.getPublisher() == null ? null : draft.getPublisher().getKey();
+
+            this.cache.put(draftKey, new DraftSnapshot(
+                draft.getModifiedOn().toInstant(), publisherKey, this.objectMapper.writeValueAsBytes(draft)
+            ));
+        } catch (final IOException ex) {
+            logger.warn("Failed to cache draft snapshot [draftKey={}, message={}]", draftKey, ex.getMessage());
+        }
+        return draft;
+    }
+
+    private AssetDraftDto restore(UUID draftKey, DraftSnapshot snapshot) {
+        try {
+            return this.objectMapper.readValue(snapshot.content, AssetDraftDto.class);
+        } catch (final IOException ex) {
+            logger.warn("Failed to read draft snapshot [draftKey={}, message={}]", draftKey, ex.getMessage());
+
+            this.cache.invalidate(draftKey);
+            return null;
+        }
+    }
+
+    private static class DraftSnapshot {
+
+        private final Instant version;
+        private final UUID    publisherKey;
+        private final byte[]  content;
+
+        private DraftSnapshot(Instant version, UUID publisherKey, byte[] content) {
+            this.version      = version;
+            this.publisherKey = publisherKey;
+            this.content      = content;
+        }
+    }
+
+}
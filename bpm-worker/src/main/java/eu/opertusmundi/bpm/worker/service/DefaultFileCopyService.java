@@ -0,0 +1,277 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import eu.opertusmundi.bpm.worker.model.EnumFileCopyStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Service
+public class DefaultFileCopyService implements FileCopyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultFileCopyService.class);
+
+    private static final String METRIC_NAME = "opertusmundi.bpm.worker.file-copy";
+
+    private static final String CHECKPOINT_SUFFIX = ".offset";
+
+    @Value("${opertusmundi.bpm.worker.file-copy.chunk-size:67108864}")
+    private long chunkSize;
+
+    /**
+     * Hard links share data with the source file. Enable only if user drive
+     * files are never modified in place
+     */
+    @Value("${opertusmundi.bpm.worker.file-copy.hard-link-enabled:false}")
+    private boolean hardLinkEnabled;
+
+    @Value("${opertusmundi.bpm.worker.file-copy.reflink-enabled:true}")
+    private boolean reflinkEnabled;
+
+    @Value("${opertusmundi.bpm.worker.file-copy.reflink-timeout-seconds:60}")
+    private long reflinkTimeoutSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Errors reported by {@code cp} when the file system does not support
+     * copy-on-write clones (EOPNOTSUPP, ENOTSUP, EXDEV)
+     */
+    private static final String[] REFLINK_UNSUPPORTED_ERRORS = {
+        "Operation not supported", "Not supported", "Invalid cross-device link"
+    };
+
+    private enum ReflinkResult {
+        CLONED,
+        UNSUPPORTED,
+        FAILED,
+        ;
+    }
+
+    /**
+     * Devices that do not support copy-on-write clones
+     */
+    private final Map<Object, Boolean> reflinkUnsupported = new ConcurrentHashMap<>();
+
+    @Override
+    public long copy(Path source, Path target, LongConsumer progress) throws IOException {
+        final Path checkpoint = this.getCheckpoint(target);
+
+        try (
+            FileChannel in  = FileChannel.open(source, StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        ) {
+            final long size     = in.size();
+            long       position = Math.min(this.readCheckpoint(checkpoint), out.size());
+
+            if (position > size) {
+                // Target is not a partial copy of the source
+                position = 0;
+            }
+            if (position > 0) {
+                logger.info("Resuming file copy [source={}, target={}, position={}, size={}]", source, target, position, size);
+            }
+            // Discard any data after the last checkpoint. The file size may
+            // cover blocks that were never written to storage
+            out.truncate(position);
+
+            while (position < size) {
+                // On Linux, transferTo uses copy_file_range/sendfile and
+                // avoids copying data through heap buffers
+                final long count = in.transferTo(position, Math.min(this.chunkSize, size - position), out.position(position));
+                if (count <= 0) {
+                    throw new IOException(String.format("Unexpected end of source file [source=%s, position=%d]", source, position));
+                }
+                position += count;
+
+                // Record the position only after the data has been forced to
+                // storage
+                out.force(false);
+                this.writeCheckpoint(checkpoint, position);
+
+                progress.accept(position);
+            }
+            out.force(false);
+        }
+
+        Files.deleteIfExists(checkpoint);
+
+        return Files.size(target);
+    }
+
+    @Override
+    public EnumFileCopyStrategy transfer(Path source, Path target, LongConsumer progress) throws IOException {
+        final EnumFileCopyStrategy strategy = this.link(source, target);
+
+        if (strategy == EnumFileCopyStrategy.COPY) {
+            this.copy(source, target, progress);
+        }
+
+        this.meterRegistry.counter(METRIC_NAME, "strategy", strategy.name()).increment();
+        this.meterRegistry.counter(METRIC_NAME + ".bytes", "strategy", strategy.name()).increment(Files.size(target));
+
+        return strategy;
+    }
+
+    private EnumFileCopyStrategy link(Path source, Path target) throws IOException {
+        if (Files.exists(this.getCheckpoint(target))) {
+            // Resume existing copy
+            return EnumFileCopyStrategy.COPY;
+        }
+        Files.deleteIfExists(target);
+
+        final FileStore sourceStore = Files.getFileStore(source);
+        final FileStore targetStore = Files.getFileStore(target.getParent());
+
+        if (!sourceStore.equals(targetStore)) {
+            return EnumFileCopyStrategy.COPY;
+        }
+
+        if (this.hardLinkEnabled) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, source);
+
+                return EnumFileCopyStrategy.HARD_LINK;
+            } catch (final IOException | UnsupportedOperationException ex) {
+                logger.warn("Failed to create hard link [source={}, target={}, message={}]", source, target, ex.getMessage());
+            }
+        }
+
+        final Object device = this.getDevice(target.getParent(), targetStore);
+
+        if (this.reflinkEnabled && !this.reflinkUnsupported.containsKey(device)) {
+            final ReflinkResult result = this.reflink(source, target);
+            if (result == ReflinkResult.CLONED) {
+                return EnumFileCopyStrategy.REFLINK;
+            }
+            if (result == ReflinkResult.UNSUPPORTED) {
+                // Only a definite error disables clones for the device.
+                // Timeouts and transient errors fall back to a copy for the
+                // current file only
+                logger.info("Copy-on-write clones are not supported [device={}, store={}]", device, targetStore);
+
+                this.reflinkUnsupported.put(device, true);
+            }
+            Files.deleteIfExists(target);
+        }
+
+        return EnumFileCopyStrategy.COPY;
+    }
+
+    @Override
+    public void discard(Path target) {
+        FileUtils.deleteQuietly(target.toFile());
+        FileUtils.deleteQuietly(this.getCheckpoint(target).toFile());
+    }
+
+    private Path getCheckpoint(Path target) {
+        return target.resolveSibling(target.getFileName().toString() + CHECKPOINT_SUFFIX);
+    }
+
+    private long readCheckpoint(Path checkpoint) {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpoint, StandardCharsets.UTF_8).trim());
+        } catch (final IOException | NumberFormatException ex) {
+            logger.warn("Failed to read file copy checkpoint [path={}, message={}]", checkpoint, ex.getMessage());
+
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint(Path checkpoint, long position) throws IOException {
+        final Path temp = checkpoint.resolveSibling(checkpoint.getFileName().toString() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(
+            temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            channel.write(StandardCharsets.UTF_8.encode(Long.toString(position)));
+            channel.force(false);
+        }
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Resolve the device of a directory. Mount point names are not unique,
+     * hence the file store name cannot be used as a key
+     */
+    private Object getDevice(Path directory, FileStore store) {
+        try {
+            final Object device = Files.getAttribute(directory, "unix:dev");
+            if (device != null) {
+                return device;
+            }
+        } catch (final IOException | UnsupportedOperationException | IllegalArgumentException ex) {
+            // The unix attribute view is not supported
+        }
+        // On Linux, the string representation contains both the mount point
+        // and the device name
+        return store.toString();
+    }
+
+    private ReflinkResult reflink(Path source, Path target) {
+        Path output = null;
+        try {
+            output = Files.createTempFile("reflink-", ".log");
+
+            final ProcessBuilder builder = new ProcessBuilder("cp", "--reflink=always", source.toString(), target.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(output.toFile());
+
+            // Error messages are matched against REFLINK_UNSUPPORTED_ERRORS
+            // and must not be translated
+            builder.environment().put("LC_ALL", "C");
+
+            final Process process = builder.start();
+
+            if (!process.waitFor(this.reflinkTimeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+
+                logger.warn("Copy-on-write clone has timed out [source={}, target={}]", source, target);
+                return ReflinkResult.FAILED;
+            }
+            if (process.exitValue() == 0) {
+                return ReflinkResult.CLONED;
+            }
+
+            final String message = Files.readString(output, StandardCharsets.UTF_8).trim();
+
+            logger.warn("Failed to create copy-on-write clone [source={}, target={}, message={}]", source, target, message);
+
+            return StringUtils.containsAny(message, REFLINK_UNSUPPORTED_ERRORS) ? ReflinkResult.UNSUPPORTED : ReflinkResult.FAILED;
+        } catch (final IOException ex) {
+            logger.warn("Failed to create copy-on-write clone [source={}, target={}, message={}]", source, target, ex.getMessage());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (output != null) {
+                output.toFile().delete();
+            }
+        }
+
+        return ReflinkResult.FAILED;
+    }
+
+}
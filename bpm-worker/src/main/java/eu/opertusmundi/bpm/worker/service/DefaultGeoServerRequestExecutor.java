@@ -0,0 +1,146 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+public class DefaultGeoServerRequestExecutor implements GeoServerRequestExecutor {
+
+    private static final String DEFAULT_SHARD = "default";
+
+    private final int maxRequestsPerShard;
+
+    private final ExecutorService executor;
+
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    public DefaultGeoServerRequestExecutor(
+        @Value("${opertusmundi.bpm.worker.geoserver.pool-size:8}") int poolSize,
+        @Value("${opertusmundi.bpm.worker.geoserver.max-requests-per-shard:4}") int maxRequestsPerShard
+    ) {
+        final AtomicInteger counter       = new AtomicInteger();
+        final ThreadFactory threadFactory = r -> {
+            final Thread t = new Thread(r, "geoserver-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+
+        this.maxRequestsPerShard = Math.max(1, maxRequestsPerShard);
+        this.executor            = Executors.newFixedThreadPool(Math.max(1, poolSize), threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    @Override
+    public <T, R> List<R> invokeAll(String shard, List<T> items, Function<T, R> request) throws InterruptedException {
+        if (items == null || items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Avoid the thread hand-off for a single request
+        if (items.size() == 1) {
+            return this.withPermit(shard, () -> Collections.singletonList(request.apply(items.get(0))));
+        }
+
+        // Permits are acquired by the calling thread before a request is
+        // submitted, hence pool threads never wait for a busy shard. A permit
+        // is released by the task body when the request completes, even if
+        // the task has been cancelled while the request is in flight. A task
+        // that is cancelled before it starts releases the permit in done()
+        final Semaphore       semaphore = this.getPermits(shard);
+        final List<Future<R>> futures   = new ArrayList<>(items.size());
+        final List<R>         results   = new ArrayList<>(items.size());
+        try {
+            for (final T item : items) {
+                semaphore.acquire();
+
+                final AtomicBoolean claimed = new AtomicBoolean();
+                final FutureTask<R> task    = new FutureTask<>(() -> {
+                    if (!claimed.compareAndSet(false, true)) {
+                        throw new CancellationException();
+                    }
+                    try {
+                        return request.apply(item);
+                    } finally {
+                        semaphore.release();
+                    }
+                }) {
+                    @Override
+                    protected void done() {
+                        if (claimed.compareAndSet(false, true)) {
+                            semaphore.release();
+                        }
+                    }
+                };
+                futures.add(task);
+                this.executor.execute(task);
+            }
+            for (final Future<R> f : futures) {
+                results.add(f.get());
+            }
+        } catch (final ExecutionException ex) {
+            futures.forEach(f -> f.cancel(true));
+
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtimeEx) {
+                throw runtimeEx;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (final InterruptedException | RuntimeException ex) {
+            futures.forEach(f -> f.cancel(true));
+            throw ex;
+        }
+
+        return results;
+    }
+
+    private Semaphore getPermits(String shard) {
+        final String key = StringUtils.isBlank(shard) ? DEFAULT_SHARD : shard;
+
+        return this.permits.computeIfAbsent(key, k -> new Semaphore(this.maxRequestsPerShard));
+    }
+
+    private <R> R withPermit(String shard, SupplierWithInterrupt<R> supplier) throws InterruptedException {
+        final Semaphore semaphore = this.getPermits(shard);
+
+        semaphore.acquire();
+        try {
+            return supplier.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SupplierWithInterrupt<R> {
+
+        R get() throws InterruptedException;
+
+    }
+
+}
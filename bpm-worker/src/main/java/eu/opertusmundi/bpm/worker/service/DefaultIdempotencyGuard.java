@@ -0,0 +1,420 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Idempotency guard that combines a Bloom filter with an exact table of the
+ * most recently sent keys.
+ *
+ * <p>
+ * The Bloom filter contains every key of the exact table, hence a filter miss
+ * is a fast negative. A filter hit is confirmed against the exact table and
+ * only keys found in the table are reported as sent. Keys evicted from the
+ * table are sent again and left to the deduplication of the remote services;
+ * {@code recent-keys} should be large enough to cover the keys of retried
+ * tasks. When the number of keys added to the filter reaches the expected
+ * number of insertions, the filter is rebuilt from the exact table, so that
+ * the false positive rate remains bounded. The exact table must be at most
+ * half the size of the filter, so that a rebuilt filter accepts at least as
+ * many keys as it has been rebuilt from before it is rebuilt again.
+ *
+ * <p>
+ * Both structures are persisted periodically and on shutdown under
+ * {@code <state-dir>/idempotency/<instance-id>}. The state directory is
+ * shared by all worker instances, hence every instance uses its own
+ * subdirectory and never overwrites the keys of another instance. The
+ * instance id is set by {@code opertusmundi.bpm.worker.instance-id} and
+ * defaults to the host name; it must be stable across restarts of the same
+ * instance, e.g. a pod name of a stateful set, otherwise a restarted instance
+ * starts with an empty registry. Keys recorded after the last snapshot are
+ * lost if the worker terminates abnormally.
+ */
+@Service
+public class DefaultIdempotencyGuard implements IdempotencyGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultIdempotencyGuard.class);
+
+    private static final String METRIC_PREFIX = "opertusmundi.bpm.worker.idempotency";
+
+    private static final String STATE_FOLDER = "idempotency";
+
+    private static final String FILTER_FILE = "keys.bloom";
+
+    private static final String RECENT_KEYS_FILE = "recent-keys.txt";
+
+    private static final int FILTER_FORMAT_VERSION = 1;
+
+    private static final Pattern INSTANCE_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+    private final Path stateDirectory;
+
+    private final long expectedInsertions;
+
+    private final double falsePositiveProbability;
+
+    private final Cache<String, Boolean> recentKeys;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile BloomFilter filter;
+
+    private Counter duplicates;
+
+    @Autowired
+    public DefaultIdempotencyGuard(
+        @Value("${opertusmundi.bpm.worker.state-dir}") String stateDirectory,
+        @Value("${opertusmundi.bpm.worker.instance-id:}") String instanceId,
+        @Value("${opertusmundi.bpm.worker.idempotency.expected-insertions:1000000}") long expectedInsertions,
+        @Value("${opertusmundi.bpm.worker.idempotency.false-positive-probability:0.01}") double falsePositiveProbability,
+        @Value("${opertusmundi.bpm.worker.idempotency.recent-keys:100000}") long recentKeys
+    ) {
+        Assert.hasText(stateDirectory, "Expected opertusmundi.bpm.worker.state-dir to be set");
+        Assert.isTrue(recentKeys > 0, "Expected opertusmundi.bpm.worker.idempotency.recent-keys to be positive");
+        Assert.isTrue(
+            recentKeys * 2 <= expectedInsertions,
+            "Expected opertusmundi.bpm.worker.idempotency.recent-keys to be at most half of expected-insertions"
+        );
+        Assert.isTrue(
+            falsePositiveProbability > 0 && falsePositiveProbability < 1,
+            "Expected opertusmundi.bpm.worker.idempotency.false-positive-probability to be in range (0, 1)"
+        );
+
+        this.stateDirectory           = Path.of(stateDirectory).toAbsolutePath().normalize()
+            .resolve(STATE_FOLDER)
+            .resolve(resolveInstanceId(instanceId));
+        this.expectedInsertions       = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.recentKeys               = Caffeine.newBuilder().maximumSize(recentKeys).build();
+    }
+
+    /**
+     * Resolve the name of the state subdirectory of this instance
+     */
+    private static String resolveInstanceId(String instanceId) {
+        String result = instanceId;
+        if (StringUtils.isBlank(result)) {
+            try {
+                result = InetAddress.getLocalHost().getHostName();
+            } catch (final UnknownHostException ex) {
+                throw new IllegalStateException(
+                    "Failed to resolve host name. Set opertusmundi.bpm.worker.instance-id explicitly", ex
+                );
+            }
+        }
+        Assert.isTrue(
+            INSTANCE_ID_PATTERN.matcher(result).matches(),
+            "Expected opertusmundi.bpm.worker.instance-id to contain only letters, digits, '.', '_' and '-'"
+        );
+        return result;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.duplicates = this.meterRegistry.counter(METRIC_PREFIX + ".duplicates");
+
+        this.filter = this.loadFilter();
+
+        // The filter must contain every key of the exact table. Keys already
+        // in the filter are not added again, so that restarts do not count
+        // towards the expected number of insertions
+        for (final String key : this.loadRecentKeys()) {
+            this.recentKeys.put(key, Boolean.TRUE);
+            if (!this.filter.mightContain(key)) {
+                this.filter.put(key);
+            }
+        }
+
+        logger.info(
+            "Loaded idempotency keys [path={}, filterInsertions={}, recentKeys={}]",
+            this.stateDirectory, this.filter.getInsertions(), this.recentKeys.estimatedSize()
+        );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        this.flush();
+    }
+
+    @Override
+    public boolean isSent(String key) {
+        if (StringUtils.isBlank(key)) {
+            return false;
+        }
+        // A filter miss is exact, since the filter contains every key of the
+        // exact table
+        if (!this.filter.mightContain(key)) {
+            return false;
+        }
+        // A filter hit may be a false positive or a key that has been evicted
+        // from the exact table
+        if (this.recentKeys.getIfPresent(key) == null) {
+            return false;
+        }
+        this.duplicates.increment();
+        return true;
+    }
+
+    @Override
+    public void markSent(String key) {
+        if (StringUtils.isBlank(key)) {
+            return;
+        }
+        this.recentKeys.put(key, Boolean.TRUE);
+
+        synchronized (this) {
+            if (this.filter.getInsertions() >= this.expectedInsertions) {
+                this.filter = this.rebuildFilter();
+            }
+            this.filter.put(key);
+        }
+        this.dirty.set(true);
+    }
+
+    /**
+     * Persist the Bloom filter and the exact table if any key has been
+     * recorded since the last snapshot
+     */
+    @Scheduled(
+        initialDelayString = "${opertusmundi.bpm.worker.idempotency.flush-interval:60000}",
+        fixedDelayString = "${opertusmundi.bpm.worker.idempotency.flush-interval:60000}"
+    )
+    public void flush() {
+        if (!this.dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            Files.createDirectories(this.stateDirectory);
+
+            final List<String> keys = this.recentKeys.asMap().keySet().stream()
+                .filter(k -> !StringUtils.containsAny(k, '\n', '\r'))
+                .toList();
+
+            this.writeAtomic(this.stateDirectory.resolve(RECENT_KEYS_FILE), output -> {
+                for (final String key : keys) {
+                    output.write(key.getBytes(StandardCharsets.UTF_8));
+                    output.write('\n');
+                }
+            });
+            synchronized (this) {
+                final BloomFilter filter = this.filter;
+                this.writeAtomic(this.stateDirectory.resolve(FILTER_FILE), filter::writeTo);
+            }
+        } catch (final IOException ex) {
+            this.dirty.set(true);
+
+            logger.warn("Failed to persist idempotency keys [path={}, message={}]", this.stateDirectory, ex.getMessage());
+        }
+    }
+
+    private BloomFilter rebuildFilter() {
+        final BloomFilter result = BloomFilter.create(this.expectedInsertions, this.falsePositiveProbability);
+        this.recentKeys.asMap().keySet().forEach(result::put);
+
+        logger.info("Rebuilt idempotency key filter [insertions={}]", result.getInsertions());
+
+        return result;
+    }
+
+    private BloomFilter loadFilter() {
+        final Path        path    = this.stateDirectory.resolve(FILTER_FILE);
+        final BloomFilter created = BloomFilter.create(this.expectedInsertions, this.falsePositiveProbability);
+
+        if (!Files.exists(path)) {
+            return created;
+        }
+        try (InputStream input = Files.newInputStream(path)) {
+            final BloomFilter loaded = BloomFilter.readFrom(input);
+            if (loaded.isCompatible(created)) {
+                return loaded;
+            }
+            logger.info("Idempotency key filter configuration has changed. Discarding filter [path={}]", path);
+        } catch (final IOException ex) {
+            logger.warn("Failed to load idempotency key filter. Discarding filter [path={}, message={}]", path, ex.getMessage());
+        }
+        return created;
+    }
+
+    private List<String> loadRecentKeys() {
+        final Path path = this.stateDirectory.resolve(RECENT_KEYS_FILE);
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        try {
+            return Files.readAllLines(path, StandardCharsets.UTF_8).stream().filter(StringUtils::isNotBlank).toList();
+        } catch (final IOException ex) {
+            logger.warn("Failed to load recent idempotency keys [path={}, message={}]", path, ex.getMessage());
+            return List.of();
+        }
+    }
+
+    private void writeAtomic(Path path, OutputWriter writer) throws IOException {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writer.write(output);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface OutputWriter {
+
+        void write(OutputStream output) throws IOException;
+
+    }
+
+    /**
+     * Bloom filter of strings. Bit positions are computed by double hashing of
+     * a 64-bit FNV-1a hash of the UTF-8 encoded value
+     */
+    private static class BloomFilter {
+
+        private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+        private static final long FNV_PRIME = 0x100000001b3L;
+
+        private final long[] words;
+
+        private final long bitCount;
+
+        private final int hashCount;
+
+        private long insertions;
+
+        private BloomFilter(long[] words, int hashCount, long insertions) {
+            this.words      = words;
+            this.bitCount   = (long) words.length * Long.SIZE;
+            this.hashCount  = hashCount;
+            this.insertions = insertions;
+        }
+
+        static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+            final long n    = Math.max(1, expectedInsertions);
+            final long bits = Math.max(Long.SIZE, (long) (-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2))));
+            final int  k    = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+
+            return new BloomFilter(new long[(int) ((bits + Long.SIZE - 1) / Long.SIZE)], k, 0);
+        }
+
+        static BloomFilter readFrom(InputStream input) throws IOException {
+            final DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+
+            final int version = data.readInt();
+            if (version != FILTER_FORMAT_VERSION) {
+                throw new IOException(String.format("Unsupported filter format version [version=%d]", version));
+            }
+            final int    hashCount  = data.readInt();
+            final long   insertions = data.readLong();
+            final long[] words      = new long[data.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = data.readLong();
+            }
+            return new BloomFilter(words, hashCount, insertions);
+        }
+
+        synchronized void writeTo(OutputStream output) throws IOException {
+            final DataOutputStream data = new DataOutputStream(output);
+
+            data.writeInt(FILTER_FORMAT_VERSION);
+            data.writeInt(this.hashCount);
+            data.writeLong(this.insertions);
+            data.writeInt(this.words.length);
+            for (final long word : this.words) {
+                data.writeLong(word);
+            }
+            data.flush();
+        }
+
+        boolean isCompatible(BloomFilter other) {
+            return this.words.length == other.words.length && this.hashCount == other.hashCount;
+        }
+
+        long getInsertions() {
+            return this.insertions;
+        }
+
+        synchronized void put(String value) {
+            final long h1 = hash(value);
+            final long h2 = mix(h1);
+            for (int i = 0; i < this.hashCount; i++) {
+                final long index = Math.floorMod(h1 + i * h2, this.bitCount);
+                this.words[(int) (index >>> 6)] |= 1L << index;
+            }
+            this.insertions++;
+        }
+
+        synchronized boolean mightContain(String value) {
+            final long h1 = hash(value);
+            final long h2 = mix(h1);
+            for (int i = 0; i < this.hashCount; i++) {
+                final long index = Math.floorMod(h1 + i * h2, this.bitCount);
+                if ((this.words[(int) (index >>> 6)] & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash(String value) {
+            long result = FNV_OFFSET_BASIS;
+            for (final byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                result ^= b & 0xff;
+                result *= FNV_PRIME;
+            }
+            return result;
+        }
+
+        private static long mix(long value) {
+            // SplitMix64 finalizer. The second hash must be odd for covering
+            // all positions of a power of two sized filter
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return (value ^ (value >>> 31)) | 1L;
+        }
+
+    }
+
+}
@@ -10,8 +10,6 @@ import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
 import eu.opertusmundi.bpm.worker.model.Parameters;
@@ -42,7 +40,7 @@ public class DefaultMailService implements MailService {
     @Autowired
     private ObjectProvider<EmailServiceFeignClient> mailClient;
     
-    @Retryable(include = {ServiceException.class}, maxAttempts = 3, backoff = @Backoff(delay = 10000, maxDelay = 60000))
+    @Override
     public void sendMail(EnumMailType type, UUID recipientKey, Map<String, Object> variables) {
         try {
             // Resolve recipient
@@ -0,0 +1,174 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+import eu.opertusmundi.bpm.worker.model.BpmnWorkerMessageCode;
+import eu.opertusmundi.bpm.worker.model.ServiceBillingTotals;
+import eu.opertusmundi.common.model.payment.ServiceBillingDto;
+
+@Service
+public class DefaultServiceBillingJournal implements ServiceBillingJournal, InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultServiceBillingJournal.class);
+
+    private static final String SCHEMA_SCRIPT = "classpath:sql/create-service-billing-journal.sql";
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        new ResourceDatabasePopulator(this.resourceLoader.getResource(SCHEMA_SCRIPT)).execute(this.dataSource);
+    }
+
+    @Override
+    public Session open(UUID batchKey, int partitionIndex, int partitionCount) throws BpmnWorkerException {
+        final JournalSession session = new JournalSession(batchKey, partitionIndex, partitionCount);
+
+        try {
+            this.jdbcTemplate.query(
+                "SELECT account_id, subscriptions, total_price, total_price_excluding_tax, total_tax "
+              + "FROM \"billing\".service_billing_journal "
+              + "WHERE batch_key = ? AND partition_index = ? AND partition_count = ?",
+                rs -> {
+                    session.processed.add(rs.getInt(1));
+                    session.totals.merge(ServiceBillingTotals.of(
+                        rs.getInt(2), rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5)
+                    ));
+                },
+                batchKey, partitionIndex, partitionCount
+            );
+        } catch (final DataAccessException ex) {
+            throw this.buildException("Failed to open service billing journal", batchKey, ex);
+        }
+
+        if (!session.processed.isEmpty()) {
+            logger.info(
+                "Resuming service billing from journal [batchKey={}, partition={}/{}, accounts={}]",
+                batchKey, partitionIndex, partitionCount, session.processed.size()
+            );
+        }
+
+        return session;
+    }
+
+    @Override
+    public void delete(UUID batchKey) throws BpmnWorkerException {
+        try {
+            this.jdbcTemplate.update("DELETE FROM \"billing\".service_billing_journal WHERE batch_key = ?", batchKey);
+        } catch (final DataAccessException ex) {
+            throw this.buildException("Failed to delete service billing journal", batchKey, ex);
+        }
+    }
+
+    private BpmnWorkerException buildException(String message, UUID batchKey, DataAccessException ex) {
+        return BpmnWorkerException.builder()
+            .code(BpmnWorkerMessageCode.IO_ERROR)
+            .message(String.format("%s [batchKey=%s]", message, batchKey))
+            .errorDetails(ex.getMessage())
+            .build();
+    }
+
+    private class JournalSession implements Session {
+
+        private final UUID batchKey;
+
+        private final int partitionIndex;
+
+        private final int partitionCount;
+
+        private final Set<Integer> processed = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Totals of the replayed entries
+         */
+        private final ServiceBillingTotals totals = ServiceBillingTotals.empty();
+
+        JournalSession(UUID batchKey, int partitionIndex, int partitionCount) {
+            this.batchKey       = batchKey;
+            this.partitionIndex = partitionIndex;
+            this.partitionCount = partitionCount;
+        }
+
+        @Override
+        public boolean isProcessed(int accountId) {
+            return this.processed.contains(accountId);
+        }
+
+        @Override
+        public int getProcessedCount() {
+            return this.processed.size();
+        }
+
+        @Override
+        public ServiceBillingTotals getTotals() {
+            return ServiceBillingTotals.empty().merge(this.totals);
+        }
+
+        @Override
+        public void append(int accountId, List<ServiceBillingDto> records) throws BpmnWorkerException {
+            Assert.state(
+                TransactionSynchronizationManager.isActualTransactionActive(),
+                "Expected journal entry to be written in the billing transaction"
+            );
+
+            final ServiceBillingTotals entry = ServiceBillingTotals.empty().add(records);
+
+            try {
+                // If the account has already been recorded, the primary key
+                // violation rolls back the billing records of the transaction
+                jdbcTemplate.update(
+                    "INSERT INTO \"billing\".service_billing_journal "
+                  + "(batch_key, account_id, partition_index, partition_count, subscriptions, "
+                  + "total_price, total_price_excluding_tax, total_tax) "
+                  + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    this.batchKey, accountId, this.partitionIndex, this.partitionCount, entry.getSubscriptions(),
+                    entry.getTotalPrice(), entry.getTotalPriceExcludingTax(), entry.getTotalTax()
+                );
+            } catch (final DataAccessException ex) {
+                throw buildException("Failed to write service billing journal", this.batchKey, ex);
+            }
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    processed.add(accountId);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            // Entries are committed with the billing records; nothing to
+            // release
+        }
+
+    }
+
+}
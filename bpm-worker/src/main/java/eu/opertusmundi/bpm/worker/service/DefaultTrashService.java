@@ -0,0 +1,255 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+@Service
+public class DefaultTrashService implements TrashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultTrashService.class);
+
+    private static final String METRIC_PREFIX = "opertusmundi.bpm.worker.trash";
+
+    /**
+     * Max number of files deleted per second by the purger. A non-positive
+     * value disables throttling
+     */
+    @Value("${opertusmundi.bpm.worker.trash.purge-max-files-per-second:1000}")
+    private int maxFilesPerSecond;
+
+    @Autowired
+    private Path assetDirectory;
+
+    @Autowired
+    private Path contractDirectory;
+
+    @Autowired
+    private Path draftDirectory;
+
+    @Autowired
+    private Path invoiceDirectory;
+
+    @Autowired
+    private Path orderDirectory;
+
+    @Autowired
+    private Path userDirectory;
+
+    @Autowired
+    private Path userServiceDirectory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private List<Path> roots;
+
+    private final AtomicLong pendingEntries = new AtomicLong();
+
+    private Counter trashedEntries;
+
+    @PostConstruct
+    public void init() {
+        this.roots = List.of(
+            this.assetDirectory, this.contractDirectory, this.draftDirectory, this.invoiceDirectory,
+            this.orderDirectory, this.userDirectory, this.userServiceDirectory
+        ).stream().map(p -> p.toAbsolutePath().normalize()).toList();
+
+        this.meterRegistry.gauge(METRIC_PREFIX + ".pending-entries", this.pendingEntries);
+
+        this.trashedEntries = this.meterRegistry.counter(METRIC_PREFIX + ".trashed-entries");
+    }
+
+    @Override
+    public void delete(Path path) {
+        if (path == null || !Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try {
+            // Symbolic links are cheap to delete
+            if (Files.isSymbolicLink(path)) {
+                Files.delete(path);
+                return;
+            }
+
+            final Path normalized = path.toAbsolutePath().normalize();
+            final Path root       = this.roots.stream()
+                .filter(r -> normalized.startsWith(r) && !normalized.equals(r))
+                .findFirst()
+                .orElse(null);
+
+            if (root != null) {
+                final Path trash  = root.resolve(TRASH_FOLDER);
+                final Path target = trash.resolve(UUID.randomUUID().toString() + "-" + normalized.getFileName());
+
+                Files.createDirectories(trash);
+                Files.move(normalized, target, StandardCopyOption.ATOMIC_MOVE);
+
+                this.trashedEntries.increment();
+                this.pendingEntries.incrementAndGet();
+
+                logger.debug("Moved path to trash [path={}, trash={}]", normalized, target);
+                return;
+            }
+        } catch (final IOException ex) {
+            logger.warn("Failed to move path to trash. Deleting path [path={}, message={}]", path, ex.getMessage());
+        }
+
+        FileUtils.deleteQuietly(path.toFile());
+    }
+
+    @Override
+    @Scheduled(
+        initialDelayString = "${opertusmundi.bpm.worker.trash.purge-initial-delay:60000}",
+        fixedDelayString = "${opertusmundi.bpm.worker.trash.purge-interval:300000}"
+    )
+    public void purge() {
+        this.pendingEntries.set(this.roots.stream().mapToLong(this::countTrashEntries).sum());
+
+        // A single throttle enforces the limit across all entries of the run
+        final Throttle throttle = new Throttle(this.maxFilesPerSecond);
+
+        for (final Path root : this.roots) {
+            final Path trash = root.resolve(TRASH_FOLDER);
+            if (!Files.isDirectory(trash, LinkOption.NOFOLLOW_LINKS)) {
+                continue;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(trash)) {
+                for (final Path entry : stream) {
+                    try {
+                        this.purgeEntry(root, entry, throttle);
+                    } catch (final IOException ex) {
+                        // Another worker may purge the same entry
+                        logger.warn("Failed to purge trash entry [path={}, message={}]", entry, ex.getMessage());
+                    }
+                }
+            } catch (final IOException ex) {
+                logger.warn("Failed to purge trash [path={}, message={}]", trash, ex.getMessage());
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long countTrashEntries(Path root) {
+        final Path trash = root.resolve(TRASH_FOLDER);
+        if (!Files.isDirectory(trash, LinkOption.NOFOLLOW_LINKS)) {
+            return 0;
+        }
+        long count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(trash)) {
+            for (@SuppressWarnings("unused") final Path entry : stream) {
+                count++;
+            }
+        } catch (final IOException ex) {
+            logger.warn("Failed to read trash [path={}, message={}]", trash, ex.getMessage());
+        }
+        return count;
+    }
+
+    private void purgeEntry(Path root, Path entry, Throttle throttle) throws IOException, InterruptedException {
+        final Tags    tags        = Tags.of("root", root.getFileName().toString());
+        final Counter purgedFiles = this.meterRegistry.counter(METRIC_PREFIX + ".purged-files", tags);
+        final Counter purgedBytes = this.meterRegistry.counter(METRIC_PREFIX + ".purged-bytes", tags);
+
+        try {
+            Files.walkFileTree(entry, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+
+                    purgedFiles.increment();
+                    purgedBytes.increment(attrs.size());
+
+                    return throttle.acquire() ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException ex) throws IOException {
+                    if (ex != null) {
+                        throw ex;
+                    }
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            if (throttle.isInterrupted()) {
+                throw new InterruptedException();
+            }
+        }
+
+        this.meterRegistry.counter(METRIC_PREFIX + ".purged-entries", tags).increment();
+        this.pendingEntries.updateAndGet(v -> Math.max(0, v - 1));
+    }
+
+    /**
+     * Limits the number of operations per second
+     */
+    private static class Throttle {
+
+        private final int limit;
+
+        private long windowStart = System.nanoTime();
+
+        private int count = 0;
+
+        private boolean interrupted = false;
+
+        Throttle(int limit) {
+            this.limit = limit;
+        }
+
+        boolean acquire() {
+            if (this.limit <= 0) {
+                return true;
+            }
+            if (++this.count < this.limit) {
+                return true;
+            }
+            final long elapsed = System.nanoTime() - this.windowStart;
+            if (elapsed < 1_000_000_000L) {
+                try {
+                    Thread.sleep((1_000_000_000L - elapsed) / 1_000_000L);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    this.interrupted = true;
+                    return false;
+                }
+            }
+            this.windowStart = System.nanoTime();
+            this.count       = 0;
+            return true;
+        }
+
+        boolean isInterrupted() {
+            return this.interrupted;
+        }
+
+    }
+
+}
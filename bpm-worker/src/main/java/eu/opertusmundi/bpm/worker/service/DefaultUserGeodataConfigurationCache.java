@@ -0,0 +1,65 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import eu.opertusmundi.common.model.geodata.EnumGeodataWorkspace;
+import eu.opertusmundi.common.model.geodata.UserGeodataConfiguration;
+import eu.opertusmundi.common.service.ogc.UserGeodataConfigurationResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+@Service
+public class DefaultUserGeodataConfigurationCache implements UserGeodataConfigurationCache {
+
+    private static final String CACHE_NAME = "userGeodataConfiguration";
+
+    private final UserGeodataConfigurationResolver userGeodataConfigurationResolver;
+
+    private final Cache<CacheKey, UserGeodataConfiguration> cache;
+
+    @Autowired
+    public DefaultUserGeodataConfigurationCache(
+        UserGeodataConfigurationResolver userGeodataConfigurationResolver,
+        MeterRegistry meterRegistry,
+        @Value("${opertusmundi.bpm.worker.geodata-config-cache.max-size:1000}") long maxSize,
+        @Value("${opertusmundi.bpm.worker.geodata-config-cache.ttl-seconds:900}") long ttlSeconds
+    ) {
+        this.userGeodataConfigurationResolver = userGeodataConfigurationResolver;
+
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+
+        // Publish hit/miss/eviction metrics
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, CACHE_NAME);
+    }
+
+    @Override
+    public UserGeodataConfiguration resolveFromUserKey(UUID userKey, EnumGeodataWorkspace workspace) {
+        final CacheKey key = new CacheKey(userKey, workspace);
+
+        // Resolver exceptions are propagated to the caller and no entry is
+        // created
+        return this.cache.get(key, k -> this.userGeodataConfigurationResolver.resolveFromUserKey(k.userKey(), k.workspace()));
+    }
+
+    @Override
+    public void invalidate(UUID userKey) {
+        this.cache.asMap().keySet().removeIf(k -> k.userKey().equals(userKey));
+    }
+
+    private record CacheKey(UUID userKey, EnumGeodataWorkspace workspace) {
+
+    }
+
+}
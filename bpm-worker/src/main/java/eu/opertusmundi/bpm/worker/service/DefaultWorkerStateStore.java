@@ -0,0 +1,102 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+import eu.opertusmundi.bpm.worker.model.BpmnWorkerMessageCode;
+
+@Service
+public class DefaultWorkerStateStore implements WorkerStateStore {
+
+    private static final String FILE_EXTENSION = ".json";
+
+    private final Path stateDirectory;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public DefaultWorkerStateStore(
+        @Value("${opertusmundi.bpm.worker.state-dir}") String stateDirectory,
+        ObjectMapper objectMapper
+    ) {
+        Assert.hasText(stateDirectory, "Expected opertusmundi.bpm.worker.state-dir to be set");
+
+        this.stateDirectory = Path.of(stateDirectory).toAbsolutePath().normalize();
+        this.objectMapper   = objectMapper;
+    }
+
+    @Override
+    public <T> Optional<T> read(String name, TypeReference<T> type) throws BpmnWorkerException {
+        final Path path = this.resolve(name);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(this.objectMapper.readValue(path.toFile(), type));
+        } catch (final IOException ex) {
+            throw this.buildException("Failed to read worker state", name, ex);
+        }
+    }
+
+    @Override
+    public void write(String name, Object value) throws BpmnWorkerException {
+        final Path path = this.resolve(name);
+        Path       temp = null;
+        try {
+            Files.createDirectories(path.getParent());
+
+            temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                this.objectMapper.writeValue(output, value);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (final IOException ex) {
+            throw this.buildException("Failed to write worker state", name, ex);
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    @Override
+    public void delete(String name) throws BpmnWorkerException {
+        try {
+            Files.deleteIfExists(this.resolve(name));
+        } catch (final IOException ex) {
+            throw this.buildException("Failed to delete worker state", name, ex);
+        }
+    }
+
+    private Path resolve(String name) {
+        Assert.hasText(name, "Expected a non-empty name");
+
+        final Path path = this.stateDirectory.resolve(name + FILE_EXTENSION).normalize();
+        Assert.isTrue(path.startsWith(this.stateDirectory), "Expected a path inside the state directory");
+
+        return path;
+    }
+
+    private BpmnWorkerException buildException(String message, String name, IOException ex) {
+        return BpmnWorkerException.builder()
+            .code(BpmnWorkerMessageCode.IO_ERROR)
+            .message(String.format("%s [name=%s]", message, name))
+            .errorDetails(ex.getMessage())
+            .build();
+    }
+
+}
@@ -0,0 +1,44 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.UUID;
+
+import eu.opertusmundi.common.model.asset.AssetDraftDto;
+
+/**
+ * Short-lived cache of asset draft snapshots shared by the publish pipeline
+ * tasks.
+ *
+ * <p>
+ * A snapshot is reused only while the modification version of the draft in
+ * the database matches the version of the cached instance. Snapshots are kept
+ * in serialized form and every lookup returns a new instance, hence callers
+ * may modify returned drafts.
+ */
+public interface DraftSnapshotCache {
+
+    /**
+     * Find a draft owned by the specified publisher
+     *
+     * @param publisherKey
+     * @param draftKey
+     * @return
+     */
+    AssetDraftDto findOneDraft(UUID publisherKey, UUID draftKey);
+
+    /**
+     * Find a draft by key
+     *
+     * @param draftKey
+     * @return
+     */
+    AssetDraftDto findOneDraft(UUID draftKey);
+
+    /**
+     * Discard any snapshot of the specified draft. Must be invoked after every
+     * update operation performed by the worker
+     *
+     * @param draftKey
+     */
+    void invalidate(UUID draftKey);
+
+}
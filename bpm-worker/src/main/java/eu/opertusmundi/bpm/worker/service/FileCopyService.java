@@ -0,0 +1,55 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongConsumer;
+
+import eu.opertusmundi.bpm.worker.model.EnumFileCopyStrategy;
+
+/**
+ * Copies large files using channel transfers. The copy is performed in
+ * chunks. After every chunk, the target file is forced to storage and the
+ * number of copied bytes is recorded in a checkpoint file next to the target
+ * file. If the copy is interrupted, it is resumed from the checkpoint, hence
+ * blocks that were not forced before a crash are copied again.
+ */
+public interface FileCopyService {
+
+    /**
+     * Copy a file
+     *
+     * @param source the source file
+     * @param target the target file. If a checkpoint exists for the file, the
+     *        copy resumes from the checkpoint; otherwise the file is
+     *        overwritten
+     * @param progress invoked after every chunk with the number of bytes
+     *        copied so far
+     * @return the total number of bytes in the target file
+     * @throws IOException if an I/O error occurs
+     */
+    long copy(Path source, Path target, LongConsumer progress) throws IOException;
+
+    /**
+     * Create the target file using the cheapest strategy supported by the
+     * source and target volumes. If source and target are on the same
+     * volume, a hard link (if enabled) or a copy-on-write clone is created;
+     * otherwise, or if linking fails, the file is copied using
+     * {@link #copy(Path, Path, LongConsumer)}. A partially copied target file
+     * is always resumed
+     *
+     * @param source the source file
+     * @param target the target file
+     * @param progress invoked with the number of bytes copied so far
+     * @return the strategy used for creating the target file
+     * @throws IOException if an I/O error occurs
+     */
+    EnumFileCopyStrategy transfer(Path source, Path target, LongConsumer progress) throws IOException;
+
+    /**
+     * Delete a partially copied target file and its checkpoint
+     *
+     * @param target the target file
+     */
+    void discard(Path target);
+
+}
@@ -0,0 +1,32 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Executes requests to GeoServer instances concurrently. The total number of
+ * concurrent requests and the number of concurrent requests per geodata shard
+ * are bounded.
+ */
+public interface GeoServerRequestExecutor {
+
+    /**
+     * Apply the specified request to all items concurrently and return the
+     * results in the same order as the input items.
+     *
+     * <p>
+     * If any request fails, pending requests are cancelled and the exception
+     * of the first failed item (in input order) is rethrown.
+     *
+     * @param <T> the item type
+     * @param <R> the result type
+     * @param shard the geodata shard that receives the requests
+     * @param items the items to process
+     * @param request the request to execute for each item
+     * @return the results ordered by input position
+     * @throws InterruptedException if the calling thread is interrupted while
+     *         waiting for results
+     */
+    <T, R> List<R> invokeAll(String shard, List<T> items, Function<T, R> request) throws InterruptedException;
+
+}
@@ -0,0 +1,34 @@
+package eu.opertusmundi.bpm.worker.service;
+
+/**
+ * Local registry of idempotency keys of messages that have already been sent
+ * by this worker instance, e.g. notifications and mails. Tasks may check the
+ * registry before invoking a remote service, so that retried tasks do not
+ * resend messages that have already been delivered.
+ *
+ * <p>
+ * The registry is a best-effort optimization and does not replace the
+ * deduplication performed by the remote services. A key that is not reported
+ * as sent may still have been sent, e.g. if it was recorded by another worker
+ * instance or before the registry was last persisted. A key that is reported
+ * as sent has always been recorded by this instance.
+ */
+public interface IdempotencyGuard {
+
+    /**
+     * Check if a message has already been sent
+     *
+     * @param key the message idempotency key
+     * @return {@code true} if the key has been recorded by
+     *         {@link #markSent(String)}
+     */
+    boolean isSent(String key);
+
+    /**
+     * Record that a message has been sent successfully
+     *
+     * @param key the message idempotency key
+     */
+    void markSent(String key);
+
+}
@@ -0,0 +1,175 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Iterates repository query results in chunks using keyset (seek) pagination.
+ *
+ * <p>
+ * Every chunk is selected with a predicate on the last key of the previous
+ * chunk instead of an offset, hence the cost of reading a chunk does not
+ * depend on its position and rows that are updated or removed while iterating
+ * are neither skipped nor returned twice. Queries must return a {@link List}
+ * ordered by the key in ascending order, so that no count query is executed.
+ *
+ * <p>
+ * Optionally, the next chunk is fetched in the background while the current
+ * chunk is processed. Prefetched chunks are loaded in a separate transaction,
+ * hence queries should return projections instead of entities.
+ */
+public class KeysetCursor<T> implements Iterator<List<T>>, AutoCloseable {
+
+    /**
+     * Query that returns the rows with a key greater than the specified value,
+     * ordered by key
+     */
+    @FunctionalInterface
+    public interface ChunkQuery<T> {
+
+        List<T> fetch(int after, Pageable pageable);
+
+    }
+
+    private final ChunkQuery<T> query;
+
+    private final ToIntFunction<T> key;
+
+    private final int chunkSize;
+
+    private Executor prefetchExecutor;
+
+    private int after = 0;
+
+    private CompletableFuture<List<T>> prefetched;
+
+    private List<T> current;
+
+    private boolean completed = false;
+
+    private KeysetCursor(ChunkQuery<T> query, ToIntFunction<T> key, int chunkSize) {
+        this.query     = query;
+        this.key       = key;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Create a cursor
+     *
+     * @param <T>
+     * @param query returns the rows after the specified key
+     * @param key returns the key of a row
+     * @param chunkSize the maximum number of rows per chunk
+     * @return
+     */
+    public static <T> KeysetCursor<T> of(ChunkQuery<T> query, ToIntFunction<T> key, int chunkSize) {
+        return new KeysetCursor<>(query, key, chunkSize);
+    }
+
+    /**
+     * Fetch the next chunk in the background using the specified executor
+     *
+     * @param executor
+     * @return
+     */
+    public KeysetCursor<T> prefetch(Executor executor) {
+        this.prefetchExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Return all rows as a sequential stream. The stream should be closed
+     * for cancelling any pending prefetch request
+     *
+     * @return
+     */
+    public Stream<T> stream() {
+        final Spliterator<List<T>> chunks = Spliterators.spliteratorUnknownSize(
+            this, Spliterator.ORDERED | Spliterator.NONNULL
+        );
+        return StreamSupport.stream(chunks, false).flatMap(List::stream).onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.current == null && !this.completed) {
+            this.current = this.advance();
+        }
+        return this.current != null;
+    }
+
+    @Override
+    public List<T> next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final List<T> result = this.current;
+        this.current = null;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        this.completed = true;
+        this.current   = null;
+        if (this.prefetched != null) {
+            this.prefetched.cancel(true);
+            this.prefetched = null;
+        }
+    }
+
+    private List<T> advance() {
+        final List<T> rows = this.fetchNextChunk();
+
+        if (rows.isEmpty()) {
+            this.completed = true;
+            return null;
+        }
+
+        this.after = this.key.applyAsInt(rows.get(rows.size() - 1));
+
+        if (rows.size() < this.chunkSize) {
+            // This is the last chunk
+            this.completed = true;
+        } else if (this.prefetchExecutor != null) {
+            final int after = this.after;
+            this.prefetched = CompletableFuture.supplyAsync(() -> this.fetch(after), this.prefetchExecutor);
+        }
+
+        return rows;
+    }
+
+    private List<T> fetchNextChunk() {
+        final CompletableFuture<List<T>> future = this.prefetched;
+        this.prefetched = null;
+
+        if (future == null) {
+            return this.fetch(this.after);
+        }
+        try {
+            return future.join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof final RuntimeException runtimeEx) {
+                throw runtimeEx;
+            }
+            throw ex;
+        }
+    }
+
+    private List<T> fetch(int after) {
+        return this.query.fetch(after, PageRequest.of(0, this.chunkSize));
+    }
+
+}
@@ -3,10 +3,20 @@ package eu.opertusmundi.bpm.worker.service;
 import java.util.Map;
 import java.util.UUID;
 
+import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.email.EnumMailType;
 
 public interface MailService {
 
-    void sendMail(EnumMailType type, UUID recipientKey, Map<String, Object> variables);
-    
+    /**
+     * Compose and send a mail. The operation is not retried; callers should
+     * reschedule failed requests instead of blocking the current thread
+     *
+     * @param type the mail type
+     * @param recipientKey the recipient account key
+     * @param variables the variables used for composing the message
+     * @throws ServiceException if the mail cannot be sent
+     */
+    void sendMail(EnumMailType type, UUID recipientKey, Map<String, Object> variables) throws ServiceException;
+
 }
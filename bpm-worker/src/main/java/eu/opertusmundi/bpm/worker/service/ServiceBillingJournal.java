@@ -0,0 +1,96 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.List;
+import java.util.UUID;
+
+import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+import eu.opertusmundi.bpm.worker.model.ServiceBillingTotals;
+import eu.opertusmundi.common.model.payment.ServiceBillingDto;
+
+/**
+ * Append-only journal of the accounts processed by a service billing batch.
+ *
+ * <p>
+ * Every processed account is recorded together with the totals of the
+ * billing records created for it. When a failed billing task is retried, the
+ * journal is replayed; accounts that have already been processed are skipped
+ * and the running totals are rebuilt from the journal entries.
+ *
+ * <p>
+ * Journals are stored in the {@code billing.service_billing_journal} table.
+ * An entry is written in the same database transaction as the billing
+ * records of the account, hence an account is either billed and recorded or
+ * neither, and a retried task resumes on any node and after a restart.
+ * Journals are deleted when the batch is completed or when it is marked as
+ * failed after all task retries are exhausted.
+ */
+public interface ServiceBillingJournal {
+
+    /**
+     * Open the journal of a batch partition. If the journal exists, existing
+     * entries are replayed
+     *
+     * @param batchKey the billing batch key
+     * @param partitionIndex the partition index. Use {@code 0} if billing is
+     *        not partitioned
+     * @param partitionCount the number of partitions. Use {@code 1} if
+     *        billing is not partitioned
+     * @return
+     * @throws BpmnWorkerException if the journal cannot be opened
+     */
+    Session open(UUID batchKey, int partitionIndex, int partitionCount) throws BpmnWorkerException;
+
+    /**
+     * Delete the journals of all partitions of a batch
+     *
+     * @param batchKey
+     * @throws BpmnWorkerException if the journals cannot be deleted
+     */
+    void delete(UUID batchKey) throws BpmnWorkerException;
+
+    interface Session extends AutoCloseable {
+
+        /**
+         * Check if an account has already been processed
+         *
+         * @param accountId
+         * @return
+         */
+        boolean isProcessed(int accountId);
+
+        /**
+         * Return the number of processed accounts
+         *
+         * @return
+         */
+        int getProcessedCount();
+
+        /**
+         * Return a copy of the totals of the entries replayed when the journal
+         * was opened
+         *
+         * @return
+         */
+        ServiceBillingTotals getTotals();
+
+        /**
+         * Record the billing records created for an account. The entry must
+         * be written in the transaction that creates the billing records and
+         * is visible to {@link #isProcessed(int)} after the transaction is
+         * committed. If the account has already been recorded, an exception
+         * is thrown and the transaction must be rolled back. This method is
+         * thread-safe
+         *
+         * @param accountId
+         * @param records
+         * @throws BpmnWorkerException if the entry cannot be written
+         * @throws IllegalStateException if no transaction is active
+         */
+        void append(int accountId, List<ServiceBillingDto> records) throws BpmnWorkerException;
+
+        @Override
+        void close();
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.nio.file.Path;
+
+/**
+ * Asynchronous deletion of large file trees.
+ *
+ * <p>
+ * Paths are moved with an atomic rename to the trash folder of the root
+ * directory that contains them and are deleted later by a background purger.
+ * If a path is not inside a known root directory or cannot be renamed, it is
+ * deleted synchronously.
+ */
+public interface TrashService {
+
+    /**
+     * Name of the trash folder created in every root directory
+     */
+    String TRASH_FOLDER = ".trash";
+
+    /**
+     * Delete a file or directory. Symbolic links are deleted and never
+     * followed. The method returns without error if the path does not exist
+     *
+     * @param path
+     */
+    void delete(Path path);
+
+    /**
+     * Purge all trash folders
+     */
+    void purge();
+
+}
@@ -0,0 +1,32 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.UUID;
+
+import eu.opertusmundi.common.model.geodata.EnumGeodataWorkspace;
+import eu.opertusmundi.common.model.geodata.UserGeodataConfiguration;
+
+/**
+ * Cache for {@link UserGeodataConfiguration} instances resolved by
+ * {@link eu.opertusmundi.common.service.ogc.UserGeodataConfigurationResolver}.
+ */
+public interface UserGeodataConfigurationCache {
+
+    /**
+     * Resolve the geodata configuration for the specified user and workspace
+     * type
+     *
+     * @param userKey
+     * @param workspace
+     * @return
+     */
+    UserGeodataConfiguration resolveFromUserKey(UUID userKey, EnumGeodataWorkspace workspace);
+
+    /**
+     * Discard all cached configurations of the specified user. Must be invoked
+     * when the user's geodata shard or workspace settings are modified
+     *
+     * @param userKey
+     */
+    void invalidate(UUID userKey);
+
+}
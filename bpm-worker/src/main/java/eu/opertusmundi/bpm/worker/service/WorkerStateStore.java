@@ -0,0 +1,51 @@
+package eu.opertusmundi.bpm.worker.service;
+
+import java.util.Optional;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+
+/**
+ * File-based storage for small state documents that must survive across task
+ * executions and worker restarts, e.g. scan cursors and checkpoints.
+ *
+ * <p>
+ * Documents are stored as JSON files under the worker state directory, which
+ * must be set explicitly with {@code opertusmundi.bpm.worker.state-dir}. The
+ * directory must be on storage shared by all worker instances, so that a task
+ * can resume on any node after a restart. Writes are atomic; a reader either
+ * sees the previous or the new version of a document.
+ */
+public interface WorkerStateStore {
+
+    /**
+     * Read a document
+     *
+     * @param <T> the document type
+     * @param name the document name. May contain {@code /} for creating
+     *        nested documents
+     * @param type the document type
+     * @return the document if it exists
+     * @throws BpmnWorkerException if the document cannot be read
+     */
+    <T> Optional<T> read(String name, TypeReference<T> type) throws BpmnWorkerException;
+
+    /**
+     * Create or replace a document
+     *
+     * @param name the document name
+     * @param value the document value
+     * @throws BpmnWorkerException if the document cannot be written
+     */
+    void write(String name, Object value) throws BpmnWorkerException;
+
+    /**
+     * Delete a document if it exists
+     *
+     * @param name the document name
+     * @throws BpmnWorkerException if the document cannot be deleted
+     */
+    void delete(String name) throws BpmnWorkerException;
+
+}
@@ -108,6 +108,39 @@ public abstract class AbstractTaskService extends BaseWorkerService implements E
         );
     }
 
+    /**
+     * Reports a failure to execute a task. The task is fetched again after
+     * the retry timeout expires, until no retries are left, in which case an
+     * incident is created
+     *
+     * @param externalTaskService
+     * @param externalTask
+     * @param ex
+     * @param retries
+     * @param retryTimeout
+     */
+    protected void handleFailure(
+        ExternalTaskService externalTaskService, ExternalTask externalTask, Exception ex, int retries, long retryTimeout
+    ) {
+        final String errorDetails = this.exceptionToString(ex);
+
+        externalTaskService.handleFailure(externalTask, DEFAULT_ERROR_MESSAGE, errorDetails, retries, retryTimeout);
+    }
+
+    /**
+     * Return the number of retries left after the current failure. The
+     * engine reports {@code null} retries for the first execution of a task
+     *
+     * @param externalTask
+     * @param retryCount the number of retries after the first execution
+     * @return
+     */
+    protected int getRemainingRetries(ExternalTask externalTask, int retryCount) {
+        final Integer retries = externalTask.getRetries();
+
+        return retries == null ? retryCount : Math.max(0, retries - 1);
+    }
+
     /**
      * See {@link #handleBpmnError(ExternalTaskService, ExternalTask, String, String, ServiceException)
      * 
@@ -1,15 +1,11 @@
 package eu.opertusmundi.bpm.worker.subscriptions.asset;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.UUID;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.time.StopWatch;
 import org.camunda.bpm.client.task.ExternalTask;
 import org.camunda.bpm.client.task.ExternalTaskService;
 import org.slf4j.Logger;
@@ -18,7 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import eu.opertusmundi.bpm.worker.model.EnumFileCopyStrategy;
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.service.FileCopyService;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.BasicMessageCode;
 import eu.opertusmundi.common.model.ServiceException;
@@ -38,6 +36,9 @@ public class CopyResourceToDriveTaskService extends AbstractTaskService {
     @Autowired
     private FileCopyResourceRepository fileCopyResourceRepository;
 
+    @Autowired
+    private FileCopyService fileCopyService;
+
     @Override
     public String getTopicName() {
         return "copyResourceToDrive";
@@ -52,7 +53,7 @@ public class CopyResourceToDriveTaskService extends AbstractTaskService {
     public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
         final String taskId      = externalTask.getId();
         final UUID   businessKey = UUID.fromString(externalTask.getBusinessKey());
-        File         temp        = null;
+        Path         temp        = null;
 
         try {
             logger.info("Received task. [taskId={}]", taskId);
@@ -64,21 +65,33 @@ public class CopyResourceToDriveTaskService extends AbstractTaskService {
             logger.debug("Processing task. [taskId={}, externalTask={}]", taskId, externalTask);
 
             if (copyOperation.getCompletedOn() == null) {
-                final String source = copyOperation.getSourcePath();
-                final String target = copyOperation.getTargetPath();
-                temp = new File(target + "." + businessKey.toString() + "." + TEMP_SUFFIX);
-
-                try (
-                    InputStream inputStream   = new FileInputStream(source);
-                    OutputStream outputStream = new FileOutputStream(temp);
-                ) {
-                    IOUtils.copyLarge(inputStream, outputStream);
-
-                    // After copying, rename file
-                    FileUtils.moveFile(temp, new File(target), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-                } catch (Exception ex) {
-                    throw new ServiceException(BasicMessageCode.IOError, "Failed to copy files", ex);
+                final Path source = Path.of(copyOperation.getSourcePath());
+                final Path target = Path.of(copyOperation.getTargetPath());
+                temp = Path.of(copyOperation.getTargetPath() + "." + businessKey.toString() + "." + TEMP_SUFFIX);
+
+                if (!Files.isRegularFile(source)) {
+                    throw new ServiceException(BasicMessageCode.IOError, String.format("Source file not found [path=%s]", source));
                 }
+
+                // The temporary file is preserved on failure and the copy is
+                // resumed when the task is retried
+                final StopWatch            watch    = StopWatch.createStarted();
+                final EnumFileCopyStrategy strategy = this.fileCopyService.transfer(source, temp, position -> {
+                    // Extend lock duration
+                    if (watch.getTime() > this.lockDurationMillis / 2) {
+                        logger.debug("Copying file [businessKey={}, copied={}]", businessKey, position);
+
+                        externalTaskService.extendLock(externalTask, this.getLockDuration());
+                        watch.reset();
+                        watch.start();
+                    }
+                });
+
+                // After copying, rename file
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                temp = null;
+
+                logger.info("File copied [businessKey={}, strategy={}, target={}]", businessKey, strategy, target);
             }
 
             this.fileCopyResourceRepository.complete(businessKey);
@@ -92,15 +105,16 @@ public class CopyResourceToDriveTaskService extends AbstractTaskService {
 
             this.fileCopyResourceRepository.fail(businessKey, ex.getMessage());
 
+            // The operation has failed and will not be retried
+            if (temp != null) {
+                this.fileCopyService.discard(temp);
+            }
+
             this.handleBpmnError(externalTaskService, externalTask, ErrorCodes.CopyResourceToDrive, ex);
         } catch (final Exception ex) {
             logger.error(DEFAULT_ERROR_MESSAGE, ex);
             this.handleFailure(externalTaskService, externalTask, ex);
-        } finally {
-            if (temp != null) {
-                FileUtils.deleteQuietly(temp);
-            }
         }
     }
 
-}
\ No newline at end of file
+}
@@ -1,8 +1,10 @@
 package eu.opertusmundi.bpm.worker.subscriptions.asset;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -14,10 +16,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.service.DraftSnapshotCache;
+import eu.opertusmundi.bpm.worker.service.GeoServerRequestExecutor;
+import eu.opertusmundi.bpm.worker.service.UserGeodataConfigurationCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.asset.AssetDraftDto;
@@ -35,7 +41,6 @@ import eu.opertusmundi.common.model.ingest.ResourceIngestionDataDto;
 import eu.opertusmundi.common.service.ProviderAssetService;
 import eu.opertusmundi.common.service.ogc.GeoServerUtils;
 import eu.opertusmundi.common.service.ogc.OgcServiceMessageCode;
-import eu.opertusmundi.common.service.ogc.UserGeodataConfigurationResolver;
 import eu.opertusmundi.common.util.BpmInstanceVariablesBuilder;
 import eu.opertusmundi.common.util.StreamUtils;
 
@@ -53,14 +58,20 @@ public class CreateServiceSamplesTaskService extends AbstractTaskService {
     }
 
     @Autowired
-    private UserGeodataConfigurationResolver userGeodataConfigurationResolver;
+    private UserGeodataConfigurationCache userGeodataConfigurationCache;
 
     @Autowired
     private ProviderAssetService providerAssetService;
 
+    @Autowired
+    private DraftSnapshotCache draftSnapshotCache;
+
     @Autowired
     private GeoServerUtils geoServerUtils;
 
+    @Autowired
+    private GeoServerRequestExecutor geoServerRequestExecutor;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -80,17 +91,20 @@ public class CreateServiceSamplesTaskService extends AbstractTaskService {
             final UUID          publisherKey = this.getPublisherKey(externalTask, externalTaskService);
             final EnumAssetType type         = this.getType(externalTask, externalTaskService);
 
-            final UserGeodataConfiguration geodataConfig = userGeodataConfigurationResolver.resolveFromUserKey(publisherKey, EnumGeodataWorkspace.PUBLIC);
+            final UserGeodataConfiguration geodataConfig = userGeodataConfigurationCache.resolveFromUserKey(publisherKey, EnumGeodataWorkspace.PUBLIC);
 
             if (type == EnumAssetType.SERVICE) {
-                final AssetDraftDto draft = providerAssetService.findOneDraft(publisherKey, draftKey, false);
+                final AssetDraftDto draft = draftSnapshotCache.findOneDraft(publisherKey, draftKey);
 
                 final List<ResourceIngestionDataDto> services    = draft.getCommand().getIngestionInfo();
                 final EnumSpatialDataServiceType     serviceType = draft.getCommand().getSpatialDataServiceType();
 
                 logger.debug("Processing task. [taskId={}, externalTask={}]", taskId, externalTask);
 
-                // Process all services
+                // Find services with sample areas
+                final List<ResourceIngestionDataDto>     pending = new ArrayList<>();
+                final List<ServiceResourceSampleAreaDto> areas   = new ArrayList<>();
+
                 for (ResourceIngestionDataDto service : services) {
                     // Find endpoint
                     final ResourceIngestionDataDto.ServiceEndpoint endpoint = service.getEndpointByServiceType(serviceType);
@@ -106,44 +120,43 @@ public class CreateServiceSamplesTaskService extends AbstractTaskService {
                             .build();
                     }
 
-                    // Find endpoint
+                    // Find sample areas
                     final ServiceResourceSampleAreaDto sampleAreas = StreamUtils.from(draft.getCommand().getSampleAreas())
                         .filter(r-> r.getId().equals(service.getKey()))
                         .findFirst()
                         .orElse(null);
 
-                    logger.info("Processing endpoint {}", endpoint.getUri());
-
                     if (sampleAreas != null && !CollectionUtils.isEmpty(sampleAreas.getAreas())) {
-                        final CatalogueItemMetadataCommandDto command = new CatalogueItemMetadataCommandDto();
-
-                        switch (serviceType) {
-                            case WMS :
-                                final List<WmsLayerSample> images = this.geoServerUtils.getWmsSamples(
-                                    geodataConfig.getUrl(), service, sampleAreas.getAreas()
-                                );
-                                command.setSamples(this.objectMapper.valueToTree(images));
-                                break;
-                            case WFS :
-                                final List<WfsLayerSample> features = this.geoServerUtils.getWfsSamples(
-                                    geodataConfig.getUrl(), geodataConfig.getEffectiveWorkspace(), service, sampleAreas.getAreas()
-                                );
-                                command.setSamples(this.objectMapper.valueToTree(features));
-                                break;
-                            default :
-                                // Ignore
-                        }
-
-                        command.setDraftKey(draftKey);
-                        command.setOwnerKey(publisherKey);
-                        command.setPublisherKey(publisherKey);
-                        command.setResourceKey(UUID.fromString(service.getKey()));
-                        command.setVisibility(null);
-                        command.setSampleAreas(null);
-
-                        this.providerAssetService.updateDraftMetadata(command);
+                        pending.add(service);
+                        areas.add(sampleAreas);
                     }
                 }
+
+                // Create samples for all services concurrently. Results are
+                // returned in the same order as the services
+                final List<Integer>  indexes = IntStream.range(0, pending.size()).boxed().toList();
+                final List<JsonNode> samples = this.geoServerRequestExecutor.invokeAll(
+                    geodataConfig.getShard(), indexes, i -> this.createSamples(geodataConfig, pending.get(i), areas.get(i), serviceType)
+                );
+
+                // Extend lock duration
+                externalTaskService.extendLock(externalTask, this.getLockDuration());
+
+                // Update draft sequentially
+                for (int i = 0; i < pending.size(); i++) {
+                    final CatalogueItemMetadataCommandDto command = new CatalogueItemMetadataCommandDto();
+
+                    command.setSamples(samples.get(i));
+                    command.setDraftKey(draftKey);
+                    command.setOwnerKey(publisherKey);
+                    command.setPublisherKey(publisherKey);
+                    command.setResourceKey(UUID.fromString(pending.get(i).getKey()));
+                    command.setVisibility(null);
+                    command.setSampleAreas(null);
+
+                    this.providerAssetService.updateDraftMetadata(command);
+                    this.draftSnapshotCache.invalidate(draftKey);
+                }
             }
 
             // Update draft status
@@ -155,6 +168,7 @@ public class CreateServiceSamplesTaskService extends AbstractTaskService {
             command.setStatus(newStatus);
 
             this.providerAssetService.updateStatus(command);
+            this.draftSnapshotCache.invalidate(draftKey);
 
             // Complete task
             final Map<String, Object> variables = BpmInstanceVariablesBuilder.builder()
@@ -175,6 +189,29 @@ public class CreateServiceSamplesTaskService extends AbstractTaskService {
         }
     }
 
+    private JsonNode createSamples(
+        UserGeodataConfiguration geodataConfig, ResourceIngestionDataDto service,
+        ServiceResourceSampleAreaDto sampleAreas, EnumSpatialDataServiceType serviceType
+    ) {
+        logger.info("Processing endpoint {}", service.getEndpointByServiceType(serviceType).getUri());
+
+        switch (serviceType) {
+            case WMS :
+                final List<WmsLayerSample> images = this.geoServerUtils.getWmsSamples(
+                    geodataConfig.getUrl(), service, sampleAreas.getAreas()
+                );
+                return this.objectMapper.valueToTree(images);
+            case WFS :
+                final List<WfsLayerSample> features = this.geoServerUtils.getWfsSamples(
+                    geodataConfig.getUrl(), geodataConfig.getEffectiveWorkspace(), service, sampleAreas.getAreas()
+                );
+                return this.objectMapper.valueToTree(features);
+            default :
+                // Ignore
+                return null;
+        }
+    }
+
     private UUID getDraftKey(ExternalTask externalTask, ExternalTaskService externalTaskService) throws BpmnWorkerException {
         final String draftKey = (String) externalTask.getVariable("draftKey");
         if (StringUtils.isBlank(draftKey)) {
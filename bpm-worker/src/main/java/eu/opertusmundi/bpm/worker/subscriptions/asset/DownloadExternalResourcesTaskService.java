@@ -21,6 +21,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.service.DraftSnapshotCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.asset.AssetDraftDto;
@@ -41,10 +42,12 @@ public class DownloadExternalResourcesTaskService extends AbstractTaskService {
     @Value("${opertusmundi.bpm.worker.tasks.download-external-resources.buffer-size:65536}")
     private int bufferSize;
 
+    private final DraftSnapshotCache   draftSnapshotCache;
     private final ProviderAssetService providerAssetService;
 
     @Autowired
-    public DownloadExternalResourcesTaskService(ProviderAssetService providerAssetService) {
+    public DownloadExternalResourcesTaskService(DraftSnapshotCache draftSnapshotCache, ProviderAssetService providerAssetService) {
+        this.draftSnapshotCache   = draftSnapshotCache;
         this.providerAssetService = providerAssetService;
     }
 
@@ -66,7 +69,7 @@ public class DownloadExternalResourcesTaskService extends AbstractTaskService {
 
         final UUID          draftKey     = this.getVariableAsUUID(externalTask, externalTaskService, "draftKey");
         final UUID          publisherKey = this.getVariableAsUUID(externalTask, externalTaskService, "publisherKey");
-        final AssetDraftDto draft        = providerAssetService.findOneDraft(draftKey);
+        final AssetDraftDto draft        = draftSnapshotCache.findOneDraft(draftKey);
 
         final List<ExternalUrlResourceDto> externalResources = draft.getCommand().getResources().stream()
             .filter(r -> r.getType() == EnumResourceType.EXTERNAL_URL)
@@ -96,6 +99,7 @@ public class DownloadExternalResourcesTaskService extends AbstractTaskService {
                     .build();
 
                 this.providerAssetService.addFileResourceFromExternalUrl(command);
+                this.draftSnapshotCache.invalidate(draftKey);
             }
 
             // Complete task
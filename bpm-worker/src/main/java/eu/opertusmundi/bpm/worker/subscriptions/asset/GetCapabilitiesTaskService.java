@@ -18,6 +18,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.service.DraftSnapshotCache;
+import eu.opertusmundi.bpm.worker.service.GeoServerRequestExecutor;
+import eu.opertusmundi.bpm.worker.service.UserGeodataConfigurationCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.asset.AssetDraftDto;
@@ -33,7 +36,6 @@ import eu.opertusmundi.common.model.ingest.ResourceIngestionDataDto;
 import eu.opertusmundi.common.service.ProviderAssetService;
 import eu.opertusmundi.common.service.ogc.GeoServerUtils;
 import eu.opertusmundi.common.service.ogc.OgcServiceMessageCode;
-import eu.opertusmundi.common.service.ogc.UserGeodataConfigurationResolver;
 import eu.opertusmundi.common.util.BpmInstanceVariablesBuilder;
 
 @Service
@@ -53,11 +55,17 @@ public class GetCapabilitiesTaskService extends AbstractTaskService {
     private ProviderAssetService providerAssetService;
 
     @Autowired
-    private UserGeodataConfigurationResolver userGeodataConfigurationResolver;
+    private DraftSnapshotCache draftSnapshotCache;
+
+    @Autowired
+    private UserGeodataConfigurationCache userGeodataConfigurationCache;
 
     @Autowired
     private GeoServerUtils geoServerUtils;
 
+    @Autowired
+    private GeoServerRequestExecutor geoServerRequestExecutor;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -79,7 +87,7 @@ public class GetCapabilitiesTaskService extends AbstractTaskService {
 
             logger.debug("Processing task. [taskId={}, externalTask={}]", taskId, externalTask);
             if (type == EnumAssetType.SERVICE) {
-                this.getCapabilities(publisherKey, draftKey);
+                this.getCapabilities(externalTask, externalTaskService, publisherKey, draftKey);
             }
 
             // Update draft status
@@ -91,6 +99,7 @@ public class GetCapabilitiesTaskService extends AbstractTaskService {
             command.setStatus(newStatus);
 
             this.providerAssetService.updateStatus(command);
+            this.draftSnapshotCache.invalidate(draftKey);
 
             // Complete task
             final Map<String, Object> variables = BpmInstanceVariablesBuilder.builder()
@@ -110,19 +119,19 @@ public class GetCapabilitiesTaskService extends AbstractTaskService {
         }
     }
     
-    private void getCapabilities(UUID publisherKey, UUID draftKey) throws JsonProcessingException {
-        final UserGeodataConfiguration geodataConfig = userGeodataConfigurationResolver.resolveFromUserKey(publisherKey, EnumGeodataWorkspace.PUBLIC);
-        final AssetDraftDto            draft         = providerAssetService.findOneDraft(publisherKey, draftKey, false);
+    private void getCapabilities(
+        ExternalTask externalTask, ExternalTaskService externalTaskService, UUID publisherKey, UUID draftKey
+    ) throws JsonProcessingException, InterruptedException {
+        final UserGeodataConfiguration geodataConfig = userGeodataConfigurationCache.resolveFromUserKey(publisherKey, EnumGeodataWorkspace.PUBLIC);
+        final AssetDraftDto            draft         = draftSnapshotCache.findOneDraft(publisherKey, draftKey);
 
         final List<ResourceIngestionDataDto> services    = draft.getCommand().getIngestionInfo();
         final EnumSpatialDataServiceType     serviceType = draft.getCommand().getSpatialDataServiceType();
 
-        // Process all services
+        // Check that all services support the requested type before sending
+        // any request
         for (ResourceIngestionDataDto service : services) {
-            // Find endpoint
-            final ResourceIngestionDataDto.ServiceEndpoint endpoint = service.getEndpointByServiceType(serviceType);
-
-            if (endpoint == null) {
+            if (service.getEndpointByServiceType(serviceType) == null) {
                 // Service type not supported
                 throw BpmnWorkerException.builder()
                     .code(OgcServiceMessageCode.TYPE_NOT_SUPPORTED)
@@ -132,22 +141,22 @@ public class GetCapabilitiesTaskService extends AbstractTaskService {
                     ))
                     .build();
             }
+        }
 
-            logger.info("Processing endpoint {}", endpoint.getUri());
+        // Load capabilities for all services concurrently. Results are
+        // returned in the same order as the services
+        final List<ServiceResourceDto> resources = this.geoServerRequestExecutor.invokeAll(
+            geodataConfig.getShard(), services, service -> this.getCapabilities(geodataConfig, service, serviceType)
+        );
 
-            final ServiceResourceDto resource = this.geoServerUtils.getCapabilities(
-                endpoint.getType(), geodataConfig.getUrl(), endpoint.getUri(), geodataConfig.getEffectiveWorkspace(), service.getTableName().toString()
-            );
+        // Extend lock duration
+        externalTaskService.extendLock(externalTask, this.getLockDuration());
 
-            if(resource == null) {
-                throw BpmnWorkerException.builder()
-                    .code(OgcServiceMessageCode.RESOURCE_NOT_CREATED)
-                    .message(String.format(
-                        "Failed to load metadata for resource (layer) [tableName=%s, type=%s, endpoint=%s]",
-                        service.getTableName(), endpoint.getType(), endpoint.getUri()
-                    ))
-                    .build();
-            }
+        // Update draft sequentially to preserve the resource order
+        for (int i = 0; i < services.size(); i++) {
+            final ResourceIngestionDataDto                 service  = services.get(i);
+            final ResourceIngestionDataDto.ServiceEndpoint endpoint = service.getEndpointByServiceType(serviceType);
+            final ServiceResourceDto                       resource = resources.get(i);
 
             logger.info("Service capabilities {}", objectMapper.writeValueAsString(resource));
 
@@ -161,9 +170,34 @@ public class GetCapabilitiesTaskService extends AbstractTaskService {
             resource.setParentId(service.getKey());
 
             this.providerAssetService.addResource(publisherKey, draftKey, resource);
+            this.draftSnapshotCache.invalidate(draftKey);
         }
     }
 
+    private ServiceResourceDto getCapabilities(
+        UserGeodataConfiguration geodataConfig, ResourceIngestionDataDto service, EnumSpatialDataServiceType serviceType
+    ) {
+        final ResourceIngestionDataDto.ServiceEndpoint endpoint = service.getEndpointByServiceType(serviceType);
+
+        logger.info("Processing endpoint {}", endpoint.getUri());
+
+        final ServiceResourceDto resource = this.geoServerUtils.getCapabilities(
+            endpoint.getType(), geodataConfig.getUrl(), endpoint.getUri(), geodataConfig.getEffectiveWorkspace(), service.getTableName().toString()
+        );
+
+        if (resource == null) {
+            throw BpmnWorkerException.builder()
+                .code(OgcServiceMessageCode.RESOURCE_NOT_CREATED)
+                .message(String.format(
+                    "Failed to load metadata for resource (layer) [tableName=%s, type=%s, endpoint=%s]",
+                    service.getTableName(), endpoint.getType(), endpoint.getUri()
+                ))
+                .build();
+        }
+
+        return resource;
+    }
+
     private UUID getDraftKey(ExternalTask externalTask, ExternalTaskService externalTaskService) throws BpmnWorkerException {
         final String name     = "draftKey";
         final String draftKey = (String) externalTask.getVariable(name);
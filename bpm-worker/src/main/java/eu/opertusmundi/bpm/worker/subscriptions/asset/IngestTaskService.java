@@ -16,6 +16,8 @@ import org.springframework.stereotype.Service;
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
 import eu.opertusmundi.bpm.worker.model.EnumPublishRequestType;
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.service.DraftSnapshotCache;
+import eu.opertusmundi.bpm.worker.service.UserGeodataConfigurationCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.asset.AssetDraftDto;
@@ -38,7 +40,6 @@ import eu.opertusmundi.common.service.IngestService;
 import eu.opertusmundi.common.service.ProviderAssetService;
 import eu.opertusmundi.common.service.UserServiceFileManager;
 import eu.opertusmundi.common.service.UserServiceService;
-import eu.opertusmundi.common.service.ogc.UserGeodataConfigurationResolver;
 
 @Service
 public class IngestTaskService extends AbstractTaskService {
@@ -57,7 +58,7 @@ public class IngestTaskService extends AbstractTaskService {
     }
 
     @Autowired
-    private UserGeodataConfigurationResolver userGeodataConfigurationResolver;
+    private UserGeodataConfigurationCache userGeodataConfigurationCache;
 
     @Autowired
     private DraftFileManager draftFileManager;
@@ -68,6 +69,9 @@ public class IngestTaskService extends AbstractTaskService {
     @Autowired
     private ProviderAssetService providerAssetService;
 
+    @Autowired
+    private DraftSnapshotCache draftSnapshotCache;
+
     @Autowired
     private UserServiceService userServiceService;
 
@@ -133,8 +137,8 @@ public class IngestTaskService extends AbstractTaskService {
         final UUID    draftKey     = this.getVariableAsUUID(externalTask, externalTaskService, "assetKey");
         final UUID    publisherKey = this.getVariableAsUUID(externalTask, externalTaskService, "publisherKey");
 
-        final AssetDraftDto draft             = providerAssetService.findOneDraft(publisherKey, draftKey, false);
-        var                 userGeodataConfig = userGeodataConfigurationResolver.resolveFromUserKey(publisherKey, EnumGeodataWorkspace.PUBLIC);
+        final AssetDraftDto draft             = draftSnapshotCache.findOneDraft(publisherKey, draftKey);
+        var                 userGeodataConfig = userGeodataConfigurationCache.resolveFromUserKey(publisherKey, EnumGeodataWorkspace.PUBLIC);
 
         final List<ResourceDto> resources = draft.getCommand().getResources();
 
@@ -159,6 +163,7 @@ public class IngestTaskService extends AbstractTaskService {
 
             // Update metadata for the specific file
             providerAssetService.updateResourceIngestionData(publisherKey, draftKey, resource.getId(), ingestResult);
+            draftSnapshotCache.invalidate(draftKey);
 
             // Publish only services
             if (draft.getType() == EnumAssetType.SERVICE) {
@@ -167,6 +172,7 @@ public class IngestTaskService extends AbstractTaskService {
                 );
 
                 providerAssetService.updateResourceIngestionData(publisherKey, draftKey, resource.getId(), publishResult);
+                draftSnapshotCache.invalidate(draftKey);
 
                 // TODO: Update services
                 logger.warn(publishResult.toString());
@@ -185,7 +191,7 @@ public class IngestTaskService extends AbstractTaskService {
         final String         encoding = service.getEncoding();
         final String         crs      = service.getCrs();
 
-        var userGeodataConfig = userGeodataConfigurationResolver.resolveFromUserKey(ownerKey, EnumGeodataWorkspace.PRIVATE);
+        var userGeodataConfig = userGeodataConfigurationCache.resolveFromUserKey(ownerKey, EnumGeodataWorkspace.PRIVATE);
 
         final String idempotentKey = service.getKey().toString();
         final String shard         = userGeodataConfig.getShard();
@@ -27,6 +27,7 @@ import org.springframework.stereotype.Service;
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
 import eu.opertusmundi.bpm.worker.model.EnumPublishRequestType;
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.service.DraftSnapshotCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.BasicMessageCode;
 import eu.opertusmundi.common.model.ServiceException;
@@ -74,6 +75,9 @@ public class IprTaskService extends AbstractTaskService {
     @Autowired
     private ProviderAssetService providerAssetService;
 
+    @Autowired
+    private DraftSnapshotCache draftSnapshotCache;
+
     @Autowired
     private IprService iprService;
 
@@ -135,7 +139,7 @@ public class IprTaskService extends AbstractTaskService {
         final UUID   draftKey     = this.getVariableAsUUID(externalTask, externalTaskService, "draftKey");
         final UUID   publisherKey = this.getVariableAsUUID(externalTask, externalTaskService, "publisherKey");
         
-        final AssetDraftDto     draft     = providerAssetService.findOneDraft(publisherKey, draftKey, false);
+        final AssetDraftDto     draft     = draftSnapshotCache.findOneDraft(publisherKey, draftKey);
         final List<ResourceDto> resources = draft.getCommand().getResources();
         
         if (draft.isIprProtectionEnabled()) {
@@ -176,6 +180,7 @@ public class IprTaskService extends AbstractTaskService {
             variables.variableAsString("status", newStatus.toString());
 
             this.providerAssetService.updateStatus(command);
+            this.draftSnapshotCache.invalidate(draftKey);
         }
 
         logger.info("Completed task. [taskId={}]", taskId);
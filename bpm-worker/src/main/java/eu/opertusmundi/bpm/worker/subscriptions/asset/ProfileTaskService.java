@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
 import eu.opertusmundi.bpm.worker.model.EnumPublishRequestType;
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.service.DraftSnapshotCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.asset.AssetDraftDto;
@@ -69,6 +70,9 @@ public class ProfileTaskService extends AbstractTaskService {
     @Autowired
     private ProviderAssetService providerAssetService;
 
+    @Autowired
+    private DraftSnapshotCache draftSnapshotCache;
+
     @Autowired
     private UserServiceService userServiceService;
 
@@ -135,7 +139,7 @@ public class ProfileTaskService extends AbstractTaskService {
         final UUID    publisherKey         = this.getVariableAsUUID(externalTask, externalTaskService, "publisherKey");
         final boolean dataProfilingEnabled = this.getVariableAsBoolean(externalTask, externalTaskService, "dataProfilingEnabled", true);
 
-        final AssetDraftDto draft = providerAssetService.findOneDraft(publisherKey, draftKey, false);
+        final AssetDraftDto draft = draftSnapshotCache.findOneDraft(publisherKey, draftKey);
 
         if (dataProfilingEnabled) {
             final List<ResourceDto> resources = draft.getCommand().getResources();
@@ -157,6 +161,7 @@ public class ProfileTaskService extends AbstractTaskService {
 
                 // Update metadata for the specific file
                 providerAssetService.updateMetadata(publisherKey, draftKey, resource.getId(), metadata);
+                draftSnapshotCache.invalidate(draftKey);
             }
         }
     }
@@ -14,6 +14,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.service.CatalogueItemCache;
+import eu.opertusmundi.bpm.worker.service.DraftSnapshotCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.asset.EnumProviderAssetDraftStatus;
@@ -31,6 +33,12 @@ public class PublishTaskService extends AbstractTaskService {
     @Autowired
     private ProviderAssetService providerAssetService;
 
+    @Autowired
+    private DraftSnapshotCache draftSnapshotCache;
+
+    @Autowired
+    private CatalogueItemCache catalogueItemCache;
+
     @Override
     public String getTopicName() {
         return "publishDraft";
@@ -70,6 +78,8 @@ public class PublishTaskService extends AbstractTaskService {
 
             // Update draft
             this.providerAssetService.publishDraft(UUID.fromString(publisherKey), UUID.fromString(publisherKey), UUID.fromString(draftKey));
+            this.draftSnapshotCache.invalidate(UUID.fromString(draftKey));
+            this.catalogueItemCache.invalidatePublisher(UUID.fromString(publisherKey));
 
             // Complete task
             final Map<String, Object> variables = BpmInstanceVariablesBuilder.builder()
@@ -12,6 +12,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+import eu.opertusmundi.bpm.worker.service.CatalogueItemCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.service.CatalogueService;
 
@@ -26,6 +27,9 @@ public class UnpublishAssetTaskService extends AbstractTaskService {
     @Autowired
     private CatalogueService catalogueService;
 
+    @Autowired
+    private CatalogueItemCache catalogueItemCache;
+
     @Override
     public String getTopicName() {
         return "unpublishAsset";
@@ -65,6 +69,7 @@ public class UnpublishAssetTaskService extends AbstractTaskService {
 
             // Remove asset
             this.catalogueService.unpublish(UUID.fromString(publisherKey), id);
+            this.catalogueItemCache.invalidate(id);
 
             // Complete task
             externalTaskService.complete(externalTask);
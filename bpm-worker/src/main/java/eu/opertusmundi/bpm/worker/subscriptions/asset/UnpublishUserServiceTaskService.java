@@ -11,10 +11,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+import eu.opertusmundi.bpm.worker.service.UserGeodataConfigurationCache;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.geodata.EnumGeodataWorkspace;
 import eu.opertusmundi.common.service.IngestService;
-import eu.opertusmundi.common.service.ogc.UserGeodataConfigurationResolver;
 
 @Service
 public class UnpublishUserServiceTaskService extends AbstractTaskService {
@@ -28,7 +28,7 @@ public class UnpublishUserServiceTaskService extends AbstractTaskService {
     private String tablePrefix;
 
     @Autowired
-    private UserGeodataConfigurationResolver userGeodataConfigurationResolver;
+    private UserGeodataConfigurationCache userGeodataConfigurationCache;
 
     @Autowired
     private IngestService ingestService;
@@ -52,7 +52,7 @@ public class UnpublishUserServiceTaskService extends AbstractTaskService {
 
             final UUID   ownerKey          = this.getVariableAsUUID(externalTask, externalTaskService, "ownerKey");
             final UUID   serviceKey        = this.getVariableAsUUID(externalTask, externalTaskService, "serviceKey");
-            final var    userGeodataConfig = userGeodataConfigurationResolver.resolveFromUserKey(ownerKey, EnumGeodataWorkspace.PRIVATE);
+            final var    userGeodataConfig = userGeodataConfigurationCache.resolveFromUserKey(ownerKey, EnumGeodataWorkspace.PRIVATE);
             final String shard             = userGeodataConfig.getShard();
             final String workspace         = userGeodataConfig.getEffectiveWorkspace();
             final String table             = tablePrefix + serviceKey.toString();
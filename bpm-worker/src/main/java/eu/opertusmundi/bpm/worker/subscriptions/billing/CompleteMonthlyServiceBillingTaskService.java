@@ -0,0 +1,125 @@
+package eu.opertusmundi.bpm.worker.subscriptions.billing;
+
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
+import org.camunda.bpm.client.task.ExternalTask;
+import org.camunda.bpm.client.task.ExternalTaskService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import eu.opertusmundi.bpm.worker.model.BpmnWorkerMessageCode;
+import eu.opertusmundi.bpm.worker.model.ServiceBillingTotals;
+import eu.opertusmundi.bpm.worker.service.ServiceBillingJournal;
+import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
+import eu.opertusmundi.common.service.ServiceBillingService;
+
+/**
+ * Completes a partitioned service billing batch. The partial totals published
+ * by every {@code monthlyServiceBilling} partition are aggregated and the
+ * batch is completed only if all partitions have been processed
+ */
+@Service
+public class CompleteMonthlyServiceBillingTaskService extends AbstractTaskService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompleteMonthlyServiceBillingTaskService.class);
+
+    @Autowired
+    private ServiceBillingService serviceBillingService;
+
+    @Autowired
+    private ServiceBillingJournal serviceBillingJournal;
+
+    @Value("${opertusmundi.bpm.worker.tasks.complete-monthly-subscription-billing.lock-duration:60000}")
+    private Long lockDurationMillis;
+
+    /**
+     * Number of retries before the batch is marked as failed. The journal is
+     * kept while retries are left
+     */
+    @Value("${opertusmundi.bpm.worker.tasks.complete-monthly-subscription-billing.retry-count:3}")
+    private int retryCount;
+
+    @Value("${opertusmundi.bpm.worker.tasks.complete-monthly-subscription-billing.retry-timeout:60000}")
+    private long retryTimeoutMillis;
+
+    @Override
+    public String getTopicName() {
+        return "completeMonthlyServiceBilling";
+    }
+
+    @Override
+    protected long getLockDuration() {
+        return this.lockDurationMillis;
+    }
+
+    @Override
+    public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
+        final String  taskId         = externalTask.getId();
+        final UUID    businessKey    = UUID.fromString(externalTask.getBusinessKey());
+        final Integer partitionCount = this.getVariableAsInteger(
+            externalTask, externalTaskService, MonthlyServiceBillingTaskService.PARAMETER_PARTITION_COUNT, 1
+        );
+
+        try {
+            logger.info("Received task. [taskId={}, partitions={}]", taskId, partitionCount);
+
+            final ServiceBillingTotals totals = ServiceBillingTotals.empty();
+
+            for (int i = 0; i < partitionCount; i++) {
+                final String name  = MonthlyServiceBillingTaskService.getPartitionResultVariable(i);
+                final String value = (String) externalTask.getVariable(name);
+
+                if (StringUtils.isBlank(value)) {
+                    throw this.buildException(
+                        BpmnWorkerMessageCode.VARIABLE_NOT_FOUND,
+                        "Service billing partition has not been processed",
+                        String.format("Partition result not found [businessKey=%s, partition=%d, name=%s]", businessKey, i, name)
+                    );
+                }
+
+                totals.merge(this.objectMapper.readValue(value, ServiceBillingTotals.class));
+            }
+
+            this.serviceBillingService.complete(
+                businessKey, totals.getSubscriptions(), totals.getTotalPrice(), totals.getTotalPriceExcludingTax(), totals.getTotalTax()
+            );
+            this.serviceBillingJournal.delete(businessKey);
+
+            // Complete task
+            externalTaskService.complete(externalTask);
+
+            logger.info("Completed task. [taskId={}]", taskId);
+        } catch (final Exception ex) {
+            final int retries = this.getRemainingRetries(externalTask, this.retryCount);
+
+            logger.error(String.format("%s [retries=%d]", DEFAULT_ERROR_MESSAGE, retries), ex);
+
+            if (retries > 0) {
+                // The task is fetched again. Partition journals are kept
+                this.handleFailure(externalTaskService, externalTask, ex, retries, this.retryTimeoutMillis);
+            } else {
+                this.serviceBillingService.fail(businessKey);
+                this.deleteJournal(businessKey);
+
+                this.handleFailure(externalTaskService, externalTask, ex);
+            }
+        }
+    }
+
+    /**
+     * Delete the journal of a failed batch. The batch is not resumed after it
+     * has failed, hence its journal must not be replayed
+     */
+    private void deleteJournal(UUID businessKey) {
+        try {
+            this.serviceBillingJournal.delete(businessKey);
+        } catch (final Exception ex) {
+            logger.warn(String.format("Failed to delete service billing journal [businessKey=%s]", businessKey), ex);
+        }
+    }
+
+}
@@ -1,8 +1,14 @@
 package eu.opertusmundi.bpm.worker.subscriptions.billing;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.camunda.bpm.client.task.ExternalTask;
 import org.camunda.bpm.client.task.ExternalTaskService;
@@ -10,18 +16,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import eu.opertusmundi.bpm.worker.model.AccountIdentity;
+import eu.opertusmundi.bpm.worker.model.ServiceBillingTotals;
+import eu.opertusmundi.bpm.worker.repository.AccountIdentityRepository;
+import eu.opertusmundi.bpm.worker.service.KeysetCursor;
+import eu.opertusmundi.bpm.worker.service.ServiceBillingJournal;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.model.BasicMessageCode;
 import eu.opertusmundi.common.model.ServiceException;
-import eu.opertusmundi.common.model.account.AccountDto;
 import eu.opertusmundi.common.model.payment.ServiceBillingDto;
 import eu.opertusmundi.common.model.payment.ServiceBillingBatchDto;
-import eu.opertusmundi.common.repository.AccountRepository;
 import eu.opertusmundi.common.service.ServiceBillingService;
+import eu.opertusmundi.common.util.BpmInstanceVariablesBuilder;
 
 @Service
 public class MonthlyServiceBillingTaskService extends AbstractTaskService {
@@ -31,18 +43,49 @@ public class MonthlyServiceBillingTaskService extends AbstractTaskService {
     private static final String PARAMETER_YEAR  = "year";
     private static final String PARAMETER_MONTH = "month";
 
+    static final String PARAMETER_PARTITION_INDEX        = "partitionIndex";
+    static final String PARAMETER_PARTITION_COUNT        = "partitionCount";
+    static final String PARTITION_RESULT_VARIABLE_PREFIX = "serviceBillingPartitionResult_";
+
     @Autowired
-    private AccountRepository accountRepository;
+    private AccountIdentityRepository accountIdentityRepository;
 
     @Autowired
     private ServiceBillingService serviceBillingService;
 
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Autowired
+    private ServiceBillingJournal serviceBillingJournal;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Value("${opertusmundi.bpm.worker.tasks.monthly-subscription-billing.lock-duration:300000}")
     private Long lockDurationMillis;
 
+    /**
+     * Number of retries before the batch is marked as failed. The journal is
+     * kept while retries are left
+     */
+    @Value("${opertusmundi.bpm.worker.tasks.monthly-subscription-billing.retry-count:3}")
+    private int retryCount;
+
+    @Value("${opertusmundi.bpm.worker.tasks.monthly-subscription-billing.retry-timeout:60000}")
+    private long retryTimeoutMillis;
+
     @Value("${opertusmundi.bpm.worker.tasks.monthly-subscription-billing.batch-size:20}")
     private int batchSize;
 
+    /**
+     * Max number of accounts billed concurrently. Accounts are billed by the
+     * shared task executor, hence concurrency is also limited by the executor
+     * pool size
+     */
+    @Value("${opertusmundi.bpm.worker.tasks.monthly-subscription-billing.parallelism:1}")
+    private int parallelism;
+
     @Override
     public String getTopicName() {
         return "monthlyServiceBilling";
@@ -55,13 +98,22 @@ public class MonthlyServiceBillingTaskService extends AbstractTaskService {
 
     @Override
     public void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
-        final String  taskId      = externalTask.getId();
-        final UUID    businessKey = UUID.fromString(externalTask.getBusinessKey());
-        final Integer year        = this.getVariableAsInteger(externalTask, externalTaskService, PARAMETER_YEAR);
-        final Integer month       = this.getVariableAsInteger(externalTask, externalTaskService, PARAMETER_MONTH);
+        final String  taskId         = externalTask.getId();
+        final UUID    businessKey    = UUID.fromString(externalTask.getBusinessKey());
+        final Integer year           = this.getVariableAsInteger(externalTask, externalTaskService, PARAMETER_YEAR);
+        final Integer month          = this.getVariableAsInteger(externalTask, externalTaskService, PARAMETER_MONTH);
+        final Integer partitionIndex = this.getVariableAsInteger(externalTask, externalTaskService, PARAMETER_PARTITION_INDEX, 0);
+        final Integer partitionCount = this.getVariableAsInteger(externalTask, externalTaskService, PARAMETER_PARTITION_COUNT, 1);
 
         try {
-            logger.info("Received task. [taskId={}]", taskId);
+            logger.info("Received task. [taskId={}, partition={}/{}]", taskId, partitionIndex, partitionCount);
+
+            if (partitionCount < 1) {
+                throw this.buildInvalidVariableValueException(PARAMETER_PARTITION_COUNT, partitionCount.toString());
+            }
+            if (partitionIndex < 0 || partitionIndex >= partitionCount) {
+                throw this.buildInvalidVariableValueException(PARAMETER_PARTITION_INDEX, partitionIndex.toString());
+            }
 
             final ServiceBillingBatchDto batch = this.serviceBillingService.findOneBillingIntervalByKey(businessKey).orElse(null);
             if (batch == null) {
@@ -72,46 +124,188 @@ public class MonthlyServiceBillingTaskService extends AbstractTaskService {
 
             logger.debug("Processing task. [taskId={}, externalTask={}]", taskId, externalTask);
 
-            int              pageIndex              = 0;
-            int              totalSubscriptions     = 0;
-            BigDecimal       totalPrice             = BigDecimal.ZERO;
-            BigDecimal       totalPriceExcludingTax = BigDecimal.ZERO;
-            BigDecimal       totalTax               = BigDecimal.ZERO;
-            Page<AccountDto> page                   = accountRepository.findAllObjects(null, PageRequest.of(pageIndex, batchSize), false);
-
-            while (!page.isEmpty()) {
-                for (final AccountDto account : page.getContent()) {
-                    final List<ServiceBillingDto> result = this.serviceBillingService.create(
-                        account.getKey(), year, month, false
-                    );
-                    totalSubscriptions += result.size();
-                    for (final ServiceBillingDto b : result) {
-                        totalPrice             = totalPrice.add(b.getTotalPrice());
-                        totalPriceExcludingTax = totalPriceExcludingTax.add(b.getTotalPriceExcludingTax());
-                        totalTax               = totalTax.add(b.getTotalTax());
-                    } ;
+            final ServiceBillingTotals totals = this.createPartition(
+                externalTask, externalTaskService, businessKey, year, month, partitionIndex, partitionCount
+            );
+
+            if (partitionCount == 1) {
+                // Billing is not partitioned; complete the batch immediately
+                this.serviceBillingService.complete(
+                    businessKey, totals.getSubscriptions(), totals.getTotalPrice(), totals.getTotalPriceExcludingTax(), totals.getTotalTax()
+                );
+                this.serviceBillingJournal.delete(businessKey);
+
+                externalTaskService.complete(externalTask);
+            } else {
+                // Publish partial totals. The batch is completed by the
+                // completeMonthlyServiceBilling task after all partitions
+                // are processed
+                final Map<String, Object> variables = BpmInstanceVariablesBuilder.builder()
+                    .variableAsString(getPartitionResultVariable(partitionIndex), this.objectMapper.writeValueAsString(totals))
+                    .buildValues();
+
+                externalTaskService.complete(externalTask, variables);
+            }
+
+            logger.info("Completed task. [taskId={}, partition={}/{}]", taskId, partitionIndex, partitionCount);
+        } catch (final Exception ex) {
+            final int retries = this.getRemainingRetries(externalTask, this.retryCount);
+
+            logger.error(String.format("%s [retries=%d]", DEFAULT_ERROR_MESSAGE, retries), ex);
+
+            if (retries > 0) {
+                // The task is fetched again and resumes from the journal
+                this.handleFailure(externalTaskService, externalTask, ex, retries, this.retryTimeoutMillis);
+            } else {
+                this.serviceBillingService.fail(businessKey);
+                this.deleteJournal(businessKey);
+
+                this.handleFailure(externalTaskService, externalTask, ex);
+            }
+        }
+    }
+
+    /**
+     * Create billing records for all accounts of a partition. An account
+     * belongs to partition {@code id % partitionCount}, hence every account is
+     * assigned to exactly one partition, even if accounts are created or
+     * deleted while partitions are processed or retried.
+     *
+     * <p>
+     * Every processed account is recorded in the batch journal. If the task
+     * is retried, accounts found in the journal are skipped and the totals are
+     * rebuilt from the journal entries.
+     *
+     * <p>
+     * If parallelism is greater than 1, the accounts of every chunk are billed
+     * concurrently by the shared task executor, with at most
+     * {@code parallelism} accounts in progress. Every account is billed in a
+     * new transaction and returns its own totals, which are merged by the
+     * calling thread.
+     */
+    private ServiceBillingTotals createPartition(
+        ExternalTask externalTask, ExternalTaskService externalTaskService,
+        UUID businessKey, int year, int month, int partitionIndex, int partitionCount
+    ) throws InterruptedException {
+        final KeysetCursor<AccountIdentity> accounts = KeysetCursor.<AccountIdentity>of(
+            (after, pageable) -> this.accountIdentityRepository.findAllInPartitionAfter(after, partitionCount, partitionIndex, pageable),
+            AccountIdentity::id,
+            this.batchSize
+        ).prefetch(this.taskExecutor);
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        final Semaphore     permits = new Semaphore(Math.max(1, this.parallelism));
+        final AtomicBoolean aborted = new AtomicBoolean(false);
+
+        try (
+            final ServiceBillingJournal.Session journal = this.serviceBillingJournal.open(businessKey, partitionIndex, partitionCount);
+            accounts;
+        ) {
+            final ServiceBillingTotals totals = journal.getTotals();
+
+            while (accounts.hasNext()) {
+                final List<CompletableFuture<ServiceBillingTotals>> futures = new ArrayList<>();
+
+                try {
+                    for (final AccountIdentity account : accounts.next()) {
+                        if (journal.isProcessed(account.id())) {
+                            continue;
+                        }
+                        if (this.parallelism <= 1) {
+                            totals.merge(this.createAccount(transactionTemplate, journal, account, year, month));
+                            continue;
+                        }
+                        permits.acquire();
+                        futures.add(CompletableFuture
+                            .supplyAsync(() -> {
+                                // Accounts that have not started when the
+                                // partition is aborted are not billed
+                                if (aborted.get()) {
+                                    throw new CancellationException();
+                                }
+                                return this.createAccount(transactionTemplate, journal, account, year, month);
+                            }, this.taskExecutor)
+                            .whenComplete((result, ex) -> permits.release())
+                        );
+                    }
+
+                    for (final CompletableFuture<ServiceBillingTotals> f : futures) {
+                        totals.merge(this.join(f));
+                    }
+                } catch (final InterruptedException | RuntimeException ex) {
+                    // Cancelling a future does not stop a running account.
+                    // Wait until every account in progress has been billed
+                    // and recorded, before the task is retried
+                    aborted.set(true);
+                    this.awaitAll(futures);
+                    throw ex;
                 }
 
                 // Extend lock duration
                 externalTaskService.extendLock(externalTask, this.getLockDuration());
+            }
+
+            return totals;
+        }
+    }
+
+    /**
+     * Create the billing records of a single account in a new transaction and
+     * record them in the journal. The journal entry is written in the same
+     * transaction, hence a crash never leaves billed accounts out of the
+     * journal
+     *
+     * @return the totals of the created records
+     */
+    private ServiceBillingTotals createAccount(
+        TransactionTemplate transactionTemplate, ServiceBillingJournal.Session journal, AccountIdentity account, int year, int month
+    ) {
+        final List<ServiceBillingDto> result = transactionTemplate.execute(status -> {
+            final List<ServiceBillingDto> records = this.serviceBillingService.create(account.key(), year, month, false);
+            journal.append(account.id(), records);
+            return records;
+        });
 
-                pageIndex++;
-                page = accountRepository.findAllConsumersObjects(null, PageRequest.of(pageIndex, batchSize), false);
+        return ServiceBillingTotals.empty().add(result);
+    }
+
+    private ServiceBillingTotals join(CompletableFuture<ServiceBillingTotals> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof final RuntimeException runtimeEx) {
+                throw runtimeEx;
             }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
 
-            this.serviceBillingService.complete(businessKey, totalSubscriptions, totalPrice, totalPriceExcludingTax, totalTax);
+    /**
+     * Wait for all futures to complete, ignoring their results and errors
+     */
+    private void awaitAll(List<CompletableFuture<ServiceBillingTotals>> futures) {
+        CompletableFuture
+            .allOf(futures.toArray(CompletableFuture[]::new))
+            .handle((result, ex) -> null)
+            .join();
+    }
 
-            // Complete task
-            externalTaskService.complete(externalTask);
+    static String getPartitionResultVariable(int partitionIndex) {
+        return PARTITION_RESULT_VARIABLE_PREFIX + partitionIndex;
+    }
 
-            logger.info("Completed task. [taskId={}]", taskId);
+    /**
+     * Delete the journal of a failed batch. The batch is not resumed after it
+     * has failed, hence its journal must not be replayed
+     */
+    private void deleteJournal(UUID businessKey) {
+        try {
+            this.serviceBillingJournal.delete(businessKey);
         } catch (final Exception ex) {
-            logger.error(DEFAULT_ERROR_MESSAGE, ex);
-            
-            this.serviceBillingService.fail(businessKey);
-            
-            this.handleFailure(externalTaskService, externalTask, ex);
+            logger.warn(String.format("Failed to delete service billing journal [businessKey=%s]", businessKey), ex);
         }
     }
 
-}
\ No newline at end of file
+}
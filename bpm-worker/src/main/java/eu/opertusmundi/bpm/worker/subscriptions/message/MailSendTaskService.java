@@ -12,8 +12,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+import eu.opertusmundi.bpm.worker.service.IdempotencyGuard;
 import eu.opertusmundi.bpm.worker.service.MailService;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
+import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.email.EnumMailType;
 
 @Service
@@ -24,9 +26,24 @@ public class MailSendTaskService extends AbstractTaskService {
     @Value("${opertusmundi.bpm.worker.tasks.mail-send.lock-duration:120000}")
     private Long lockDurationMillis;
 
+    /**
+     * Number of times a failed mail is retried before an incident is created
+     */
+    @Value("${opertusmundi.bpm.worker.tasks.mail-send.retry-count:2}")
+    private int retryCount;
+
+    @Value("${opertusmundi.bpm.worker.tasks.mail-send.retry-delay:10000}")
+    private long retryDelayMillis;
+
+    @Value("${opertusmundi.bpm.worker.tasks.mail-send.retry-max-delay:60000}")
+    private long retryMaxDelayMillis;
+
     @Autowired
     private MailService mailService;
 
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
     @Override
     public String getTopicName() {
         return "sendMail";
@@ -49,11 +66,22 @@ public class MailSendTaskService extends AbstractTaskService {
             final UUID                mailRecipient = this.getVariableAsUUID(externalTask, externalTaskService, "mailRecipient");
             final EnumMailType        type          = EnumMailType.valueOf(mailType);
             final Map<String, Object> variables     = externalTask.getAllVariables();
+            final String              idempotentKey = this.getIdempotentKey(externalTask, type, mailRecipient);
 
             logger.debug("Processing task. [taskId={}, externalTask={}]", taskId, externalTask);
 
+            // Skip mails already sent by a previous execution
+            if (this.idempotencyGuard.isSent(idempotentKey)) {
+                externalTaskService.complete(externalTask);
+
+                logger.info("Mail has already been sent. Completed task. [taskId={}, idempotentKey={}]", taskId, idempotentKey);
+                return;
+            }
+
             this.mailService.sendMail(type, mailRecipient, variables);
 
+            this.idempotencyGuard.markSent(idempotentKey);
+
             // Complete task
             externalTaskService.complete(externalTask);
 
@@ -64,6 +92,16 @@ public class MailSendTaskService extends AbstractTaskService {
             externalTaskService.handleFailure(
                 externalTask, ex.getMessage(), ex.getErrorDetails(), ex.getRetries(), ex.getRetryTimeout()
             );
+        } catch (final ServiceException ex) {
+            // The mail service may be temporarily unavailable. Instead of
+            // blocking the current thread, the task is returned to the engine
+            // and is fetched again after the retry timeout expires
+            final int  retries      = this.getRemainingRetries(externalTask, this.retryCount);
+            final long retryTimeout = this.getRetryTimeout(retries);
+
+            logger.error(String.format("%s [retries=%d, retryTimeout=%d]", DEFAULT_ERROR_MESSAGE, retries, retryTimeout), ex);
+
+            this.handleFailure(externalTaskService, externalTask, ex, retries, retryTimeout);
         } catch (final Exception ex) {
             logger.error(DEFAULT_ERROR_MESSAGE, ex);
 
@@ -71,4 +109,28 @@ public class MailSendTaskService extends AbstractTaskService {
         }
     }
 
+    /**
+     * Compute an exponential retry timeout. The first retry is delayed by
+     * {@code retry-delay} and every subsequent retry doubles the delay up to
+     * {@code retry-max-delay}
+     */
+    private long getRetryTimeout(int retries) {
+        if (retries == 0) {
+            return 0;
+        }
+        final int attempt = Math.max(0, Math.min(this.retryCount - retries, 30));
+
+        return Math.min(this.retryMaxDelayMillis, this.retryDelayMillis << attempt);
+    }
+
+    /**
+     * Mails have no idempotency key. The key is derived from the activity
+     * instance, which does not change when the external task is retried
+     */
+    private String getIdempotentKey(ExternalTask externalTask, EnumMailType type, UUID recipient) {
+        return String.join("::",
+            "MAIL", externalTask.getProcessInstanceId(), externalTask.getActivityInstanceId(), type.toString(), recipient.toString()
+        );
+    }
+
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+import eu.opertusmundi.bpm.worker.service.IdempotencyGuard;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.feign.client.MessageServiceFeignClient;
 import eu.opertusmundi.common.model.message.EnumNotificationType;
@@ -36,6 +37,9 @@ public class NotificationSendTaskService extends AbstractTaskService {
     @Autowired
     private NotificationMessageHelper notificationMessageBuilder;
 
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
     @Override
     public String getTopicName() {
         return "sendNotification";
@@ -66,6 +70,14 @@ public class NotificationSendTaskService extends AbstractTaskService {
 
             logger.debug("Processing task. [taskId={}, externalTask={}]", taskId, externalTask);
 
+            // Skip notifications already sent by a previous execution
+            if (this.idempotencyGuard.isSent(idempotentKey)) {
+                externalTaskService.complete(externalTask);
+
+                logger.info("Notification has already been sent. Completed task. [taskId={}, idempotentKey={}]", taskId, idempotentKey);
+                return;
+            }
+
             // Build notification message
             final JsonNode data = this.notificationMessageBuilder.collectNotificationData(type, variables);
 
@@ -79,6 +91,8 @@ public class NotificationSendTaskService extends AbstractTaskService {
 
             messageClient.getObject().sendNotification(notification);
 
+            this.idempotencyGuard.markSent(idempotentKey);
+
             // Complete task
             externalTaskService.complete(externalTask);
 
@@ -1,9 +1,13 @@
 package eu.opertusmundi.bpm.worker.subscriptions.provider;
 
 import java.time.ZonedDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 
 import org.camunda.bpm.client.task.ExternalTask;
 import org.camunda.bpm.client.task.ExternalTaskService;
@@ -12,15 +16,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Direction;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import eu.opertusmundi.bpm.worker.model.FavoriteAssetRecipient;
+import eu.opertusmundi.bpm.worker.repository.FavoriteKeysetRepository;
+import eu.opertusmundi.bpm.worker.service.CatalogueItemCache;
+import eu.opertusmundi.bpm.worker.service.IdempotencyGuard;
+import eu.opertusmundi.bpm.worker.service.KeysetCursor;
 import eu.opertusmundi.bpm.worker.subscriptions.user.AbstractCustomerTaskService;
-import eu.opertusmundi.common.domain.FavoriteAssetEntity;
 import eu.opertusmundi.common.feign.client.MessageServiceFeignClient;
 import eu.opertusmundi.common.model.account.AccountDto;
 import eu.opertusmundi.common.model.account.EnumKycLevel;
@@ -29,8 +35,6 @@ import eu.opertusmundi.common.model.favorite.EnumAssetFavoriteAction;
 import eu.opertusmundi.common.model.message.EnumNotificationType;
 import eu.opertusmundi.common.model.message.server.ServerNotificationCommandDto;
 import eu.opertusmundi.common.repository.AccountRepository;
-import eu.opertusmundi.common.repository.FavoriteRepository;
-import eu.opertusmundi.common.service.CatalogueService;
 import eu.opertusmundi.common.service.messaging.NotificationMessageHelper;
 
 @Service
@@ -43,27 +47,39 @@ public class SendAssetNotificationsTaskService extends AbstractCustomerTaskServi
     @Value("${opertusmundi.bpm.worker.tasks.send-asset-notifications.lock-duration:120000}")
     private Long lockDurationMillis;
 
+    @Value("${opertusmundi.bpm.worker.tasks.send-asset-notifications.batch-size:100}")
+    private int batchSize;
+
+    @Value("${opertusmundi.bpm.worker.tasks.send-asset-notifications.send-parallelism:4}")
+    private int sendParallelism;
+
     final private AccountRepository                         accountRepository;
-    final private CatalogueService                          catalogueService;
-    final private FavoriteRepository                        favoriteRepository;
+    final private CatalogueItemCache                        catalogueItemCache;
+    final private FavoriteKeysetRepository                  favoriteKeysetRepository;
+    final private IdempotencyGuard                          idempotencyGuard;
     final private NotificationMessageHelper                 notificationMessageBuilder;
     final private ObjectProvider<MessageServiceFeignClient> messageClient;
-    
+    final private TaskExecutor                              taskExecutor;
+
     @Autowired
     public SendAssetNotificationsTaskService(
         AccountRepository accountRepository,
-        CatalogueService catalogueService,
-        FavoriteRepository favoriteRepository,
+        CatalogueItemCache catalogueItemCache,
+        FavoriteKeysetRepository favoriteKeysetRepository,
+        IdempotencyGuard idempotencyGuard,
         NotificationMessageHelper notificationMessageBuilder,
-        ObjectProvider<MessageServiceFeignClient> messageClient
+        ObjectProvider<MessageServiceFeignClient> messageClient,
+        TaskExecutor taskExecutor
     ) {
         super();
 
         this.accountRepository          = accountRepository;
-        this.catalogueService           = catalogueService;
-        this.favoriteRepository         = favoriteRepository;
+        this.catalogueItemCache         = catalogueItemCache;
+        this.favoriteKeysetRepository   = favoriteKeysetRepository;
+        this.idempotencyGuard           = idempotencyGuard;
         this.notificationMessageBuilder = notificationMessageBuilder;
         this.messageClient              = messageClient;
+        this.taskExecutor               = taskExecutor;
     }
 
     @Override
@@ -122,54 +138,103 @@ public class SendAssetNotificationsTaskService extends AbstractCustomerTaskServi
         return provider.getKycLevel() == EnumKycLevel.REGULAR;
     }
 
-    private void sendNotifications(ExternalTask externalTask, ExternalTaskService externalTaskService, AccountDto account) {
-        final var direction   = Direction.ASC;
-        var       pageRequest = PageRequest.of(0, 10, Sort.by(direction, "account.id"));
-        var       itemCache   = new HashMap<String, CatalogueItemDto>();
-        var       favorites   = this.favoriteRepository.findAllAssetByAssetProvider(account.getId(), pageRequest);
+    private void sendNotifications(
+        ExternalTask externalTask, ExternalTaskService externalTaskService, AccountDto account
+    ) throws InterruptedException {
+        final var favorites = KeysetCursor.<FavoriteAssetRecipient>of(
+            (after, pageable) -> this.favoriteKeysetRepository.findAllRecipientsByAssetProviderAfter(
+                account.getId(), EnumAssetFavoriteAction.PURCHASE, after, pageable
+            ),
+            FavoriteAssetRecipient::id,
+            this.batchSize
+        );
+
+        final EnumNotificationType type      = EnumNotificationType.ASSET_AVAILABLE_TO_PURCHASE;
+        final Map<String, Object>  variables = externalTask.getAllVariables();
+        final Semaphore            permits   = new Semaphore(Math.max(1, this.sendParallelism));
+
+        while (favorites.hasNext()) {
+            final List<FavoriteAssetRecipient>       page          = favorites.next();
+            final List<ServerNotificationCommandDto> notifications = new ArrayList<>(page.size());
+            final List<CompletableFuture<Void>>      futures       = new ArrayList<>(page.size());
+
+            // Build notifications for the whole page
+            for (final FavoriteAssetRecipient f : page) {
+                // Find item. All favorites refer to assets published by the
+                // same provider
+                final CatalogueItemDto item = this.catalogueItemCache.findOne(account.getKey(), f.assetId());
 
-        while (!favorites.isEmpty()) {
-            for (final FavoriteAssetEntity f : favorites.getContent()) {
-                if (f.getAction() != EnumAssetFavoriteAction.PURCHASE) {
-                    continue;
-                }
-                // Find item
-                CatalogueItemDto item = null;
-                if (!itemCache.containsKey(f.getAssetId())) {
-                    var publisher = this.accountRepository.findById(f.getAssetProvider()).get();
-                    item = this.catalogueService.findOne(null, f.getAssetId(), publisher.getKey(), false);
-                    itemCache.put(f.getAssetId(), item);
-                }               
-                // Send notification
-                final String               idempotentKey = IDEMPOTENT_KEY_PREFIX + f.getId().toString();
-                final EnumNotificationType type          = EnumNotificationType.ASSET_AVAILABLE_TO_PURCHASE;
-                final Map<String, Object>  variables     = externalTask.getAllVariables();
                 variables.put("assetId", item.getId());
                 variables.put("assetName", item.getTitle());
 
                 final JsonNode data = this.notificationMessageBuilder.collectNotificationData(type, variables);
 
-                final ServerNotificationCommandDto notification = ServerNotificationCommandDto.builder()
+                notifications.add(ServerNotificationCommandDto.builder()
                     .data(data)
                     .eventType(type.toString())
-                    .idempotentKey(idempotentKey)
-                    .recipient(f.getAccount().getKey())
+                    .idempotentKey(this.getIdempotentKey(f))
+                    .recipient(f.recipientKey())
                     .text(this.notificationMessageBuilder.composeNotificationText(type, data))
-                    .build();
-
-                messageClient.getObject().sendNotification(notification);
-                
-                // Mark as sent
-                f.setNotificationSentAt(ZonedDateTime.now());
-                f.setNotificationSent(true);
-                this.favoriteRepository.saveAndFlush(f);
+                    .build()
+                );
+            }
+
+            // Send notifications concurrently on the shared task executor.
+            // Notifications already sent by a previous execution are only
+            // marked as sent
+            final MessageServiceFeignClient client = this.messageClient.getObject();
+            try {
+                for (int i = 0; i < notifications.size(); i++) {
+                    final ServerNotificationCommandDto n = notifications.get(i);
+
+                    if (this.idempotencyGuard.isSent(this.getIdempotentKey(page.get(i)))) {
+                        futures.add(null);
+                        continue;
+                    }
+                    permits.acquire();
+                    futures.add(CompletableFuture
+                        .runAsync(() -> client.sendNotification(n), this.taskExecutor)
+                        .whenComplete((result, ex) -> permits.release())
+                    );
+                }
+            } catch (final InterruptedException ex) {
+                futures.stream().filter(f -> f != null).forEach(f -> f.cancel(true));
+                throw ex;
+            }
+
+            final List<Integer> sent    = new ArrayList<>(page.size());
+            RuntimeException    failure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    if (futures.get(i) != null) {
+                        futures.get(i).join();
+                        this.idempotencyGuard.markSent(this.getIdempotentKey(page.get(i)));
+                    }
+                    sent.add(page.get(i).id());
+                } catch (final CompletionException ex) {
+                    logger.warn("Failed to send notification [favoriteId={}]", page.get(i).id(), ex.getCause());
+                    if (failure == null) {
+                        failure = ex.getCause() instanceof final RuntimeException runtimeEx
+                            ? runtimeEx
+                            : new IllegalStateException(ex.getCause());
+                    }
+                }
+            }
+
+            // Mark as sent
+            if (!sent.isEmpty()) {
+                this.favoriteKeysetRepository.setNotificationSent(sent, ZonedDateTime.now());
+            }
+            if (failure != null) {
+                throw failure;
             }
 
             // Extend lock duration
             externalTaskService.extendLock(externalTask, this.getLockDuration());
-
-            pageRequest = pageRequest.next();
-            favorites   = this.favoriteRepository.findAllAssetByAssetProvider(account.getId(), pageRequest);
         }
     }
+
+    private String getIdempotentKey(FavoriteAssetRecipient favorite) {
+        return IDEMPOTENT_KEY_PREFIX + favorite.id().toString();
+    }
 }
@@ -6,16 +6,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
 
+import eu.opertusmundi.bpm.worker.model.AccountIdentity;
 import eu.opertusmundi.bpm.worker.model.ErrorCodes;
+import eu.opertusmundi.bpm.worker.repository.AccountIdentityRepository;
+import eu.opertusmundi.bpm.worker.service.KeysetCursor;
 import eu.opertusmundi.bpm.worker.subscriptions.user.AbstractCustomerTaskService;
 import eu.opertusmundi.common.model.ServiceException;
-import eu.opertusmundi.common.model.account.AccountDto;
-import eu.opertusmundi.common.repository.AccountRepository;
 import eu.opertusmundi.common.service.contract.ProviderTemplateContractService;
 
 @Service
@@ -26,17 +24,20 @@ public class UpdateProviderDefaultContractsTaskService extends AbstractCustomerT
     @Value("${opertusmundi.bpm.worker.tasks.set-provider-default-contract.lock-duration:120000}")
     private Long lockDurationMillis;
 
-    final private AccountRepository               accountRepository;
+    @Value("${opertusmundi.bpm.worker.tasks.set-provider-default-contract.batch-size:100}")
+    private int batchSize;
+
+    final private AccountIdentityRepository       accountIdentityRepository;
     final private ProviderTemplateContractService providerTemplateContractService;
 
     @Autowired
     public UpdateProviderDefaultContractsTaskService(
-        AccountRepository accountRepository,
+        AccountIdentityRepository accountIdentityRepository,
         ProviderTemplateContractService providerTemplateContractService
     ) {
         super();
 
-        this.accountRepository               = accountRepository;
+        this.accountIdentityRepository       = accountIdentityRepository;
         this.providerTemplateContractService = providerTemplateContractService;
     }
 
@@ -58,20 +59,16 @@ public class UpdateProviderDefaultContractsTaskService extends AbstractCustomerT
             logger.info("Received task. [taskId={}]", taskId);
             logger.debug("Processing task. [taskId={}, externalTask={}]", taskId, externalTask);
 
+            final KeysetCursor<AccountIdentity> accounts = KeysetCursor.of(
+                this.accountIdentityRepository::findAllProvidersAfter, AccountIdentity::id, this.batchSize
+            );
 
-            final Direction direction   = Direction.ASC;
-            PageRequest     pageRequest = PageRequest.of(0, 10, Sort.by(direction, "id"));
-            var             accounts    = this.accountRepository.findAllProvidersObjects(null, pageRequest, false);
-
-            while (!accounts.isEmpty()) {
-                for (final AccountDto a : accounts.getContent()) {
-                    this.providerTemplateContractService.updateDefaultContracts(a.getKey());
+            while (accounts.hasNext()) {
+                for (final AccountIdentity a : accounts.next()) {
+                    this.providerTemplateContractService.updateDefaultContracts(a.key());
                 }
                 // Extend lock duration
                 externalTaskService.extendLock(externalTask, this.getLockDuration());
-
-                pageRequest = pageRequest.next();
-                accounts    = this.accountRepository.findAllProvidersObjects(null, pageRequest, false);
             }
 
             externalTaskService.complete(externalTask);
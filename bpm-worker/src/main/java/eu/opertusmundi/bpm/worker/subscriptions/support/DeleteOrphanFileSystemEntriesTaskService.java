@@ -1,11 +1,29 @@
 package eu.opertusmundi.bpm.worker.subscriptions.support;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.UUID;
-
-import org.apache.commons.io.FileUtils;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.time.StopWatch;
 import org.camunda.bpm.client.task.ExternalTask;
 import org.camunda.bpm.client.task.ExternalTaskService;
 import org.slf4j.Logger;
@@ -14,17 +32,46 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import eu.opertusmundi.bpm.worker.model.AccountExistenceIndex;
+import eu.opertusmundi.bpm.worker.model.ScanCursor;
+import eu.opertusmundi.bpm.worker.repository.AccountIdentityRepository;
+import eu.opertusmundi.bpm.worker.service.AccountExistenceIndexService;
+import eu.opertusmundi.bpm.worker.service.TrashService;
+import eu.opertusmundi.bpm.worker.service.WorkerStateStore;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
-import eu.opertusmundi.common.repository.AccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 
 @Service
 public class DeleteOrphanFileSystemEntriesTaskService extends AbstractTaskService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeleteOrphanFileSystemEntriesTaskService.class);
 
+    private static final String METRIC_PREFIX = "opertusmundi.bpm.worker.orphan-cleanup";
+
+    private static final String CURSOR_STATE = "orphan-cleanup/cursors";
+
     @Value("${opertusmundi.bpm.worker.tasks.delete-orphan-file-system-entries.lock-duration:120000}")
     private Long lockDurationMillis;
 
+    @Value("${opertusmundi.bpm.worker.tasks.delete-orphan-file-system-entries.delete-parallelism:4}")
+    private int deleteParallelism;
+
+    /**
+     * Max number of entries processed per root in a single execution
+     */
+    @Value("${opertusmundi.bpm.worker.tasks.delete-orphan-file-system-entries.batch-size:5000}")
+    private int batchSize;
+
+    /**
+     * Max duration of a single execution. Remaining entries are processed by
+     * the next execution
+     */
+    @Value("${opertusmundi.bpm.worker.tasks.delete-orphan-file-system-entries.time-budget-seconds:600}")
+    private long timeBudgetSeconds;
+
     @Autowired
     private Path assetDirectory;
 
@@ -47,7 +94,19 @@ public class DeleteOrphanFileSystemEntriesTaskService extends AbstractTaskServic
     private Path userServiceDirectory;
 
     @Autowired
-    private AccountRepository accountRepository;
+    private AccountIdentityRepository accountIdentityRepository;
+
+    @Autowired
+    private AccountExistenceIndexService accountExistenceIndexService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WorkerStateStore workerStateStore;
+
+    @Autowired
+    private TrashService trashService;
 
     @Override
     protected long getLockDuration() {
@@ -62,29 +121,29 @@ public class DeleteOrphanFileSystemEntriesTaskService extends AbstractTaskServic
     @Override
     public final void execute(ExternalTask externalTask, ExternalTaskService externalTaskService) {
         try {
-            final String  taskId            = externalTask.getId();
+            final String taskId = externalTask.getId();
 
             logger.info("Received task. [taskId={}]", taskId);
 
-            this.deleteProviderAssetDir();
-            externalTaskService.extendLock(externalTask, this.getLockDuration());
-            
-            this.deleteUserContractDir();
-            externalTaskService.extendLock(externalTask, this.getLockDuration());
-            
-            this.deleteProviderDraftDir();
-            externalTaskService.extendLock(externalTask, this.getLockDuration());
-            
-            this.deleteUserInvoiceDir();
-            externalTaskService.extendLock(externalTask, this.getLockDuration());
-            
-            this.deleteUserOrderDir();
-            externalTaskService.extendLock(externalTask, this.getLockDuration());
-            
-            this.deleteUserDataDir();
+            final boolean dryRun = this.getVariableAsBoolean(externalTask, externalTaskService, "dryRun", false);
+
+            // Load all account identifiers once instead of querying the
+            // database for every directory
+            final AccountExistenceIndex index = this.accountExistenceIndexService.load();
             externalTaskService.extendLock(externalTask, this.getLockDuration());
-            
-            this.deleteUserServiceDir();
+
+            final List<OrphanRoot> roots = List.of(
+                new OrphanRoot("asset", this.assetDirectory, p -> this.isOrphanProviderAsset(index, p)),
+                new OrphanRoot("contract", this.contractDirectory, p -> this.isOrphanUserIdDir(index, p, "contract")),
+                new OrphanRoot("draft", this.draftDirectory, p -> this.isOrphanUserKeyDir(index, p, "draft")),
+                new OrphanRoot("invoice", this.invoiceDirectory, p -> this.isOrphanUserIdDir(index, p, "invoice")),
+                new OrphanRoot("order", this.orderDirectory, p -> this.isOrphanUserIdDir(index, p, "orders")),
+                new OrphanRoot("user", this.userDirectory, p -> this.isOrphanUserDataDir(index, p)),
+                new OrphanRoot("user-service", this.userServiceDirectory, p -> this.isOrphanUserKeyDir(index, p, "user services"))
+            );
+
+            this.scanAll(externalTask, externalTaskService, roots, dryRun);
+
             externalTaskService.complete(externalTask);
 
             logger.info("Completed task. [taskId={}]", taskId);
@@ -95,175 +154,256 @@ public class DeleteOrphanFileSystemEntriesTaskService extends AbstractTaskServic
         }
     }
 
-    private void deleteProviderAssetDir() {
-        // Provider asset directories are symbolic links to draft
-        // directories. A draft directory is composed by the root path for
-        // drafts, the provider unique key and the draft unique key
-        for (final File providerAssetDir : this.assetDirectory.toFile().listFiles()) {
-            if (providerAssetDir.isFile()) {
-                logger.warn(
-                    "A file was found in provider asset directory. Expected only symbolic links to directories [file={}]",
-                    providerAssetDir
-                );
-                continue;
-            }
+    /**
+     * Scan all roots in parallel. Orphan entries are deleted by a bounded
+     * fork-join pool shared by all roots.
+     *
+     * <p>
+     * Every root is scanned incrementally. Each execution processes at most
+     * {@link #batchSize} entries per root within the time budget, starting
+     * after the last entry processed by the previous execution
+     */
+    private void scanAll(
+        ExternalTask externalTask, ExternalTaskService externalTaskService, List<OrphanRoot> roots, boolean dryRun
+    ) throws InterruptedException, ExecutionException {
+        final Map<String, ScanCursor> cursors      = new ConcurrentHashMap<>(
+            this.workerStateStore.read(CURSOR_STATE, new TypeReference<Map<String, ScanCursor>>() { }).orElse(Map.of())
+        );
+        final long                    deadline     = System.currentTimeMillis() + this.timeBudgetSeconds * 1000;
+        final ExecutorService         scanExecutor = Executors.newFixedThreadPool(roots.size());
+        final ForkJoinPool            deletePool   = new ForkJoinPool(Math.max(1, this.deleteParallelism));
 
-            try {
-                final Path targetPath = providerAssetDir.toPath().toRealPath();
-                if (targetPath != null && targetPath.toFile().exists()) {
-                    final int    count           = targetPath.getNameCount();
-                    final String userKeyAsString = targetPath.getName(count - 2).toString();
-                    try {
-                        final UUID userKey = UUID.fromString(userKeyAsString);
-                        if (!this.userExists(userKey)) {
-                            FileUtils.deleteQuietly(providerAssetDir);
-                            logger.info("Deleted asset symbolic link. Provider was not found [link={}]", providerAssetDir);
-                        }
-                    } catch (IllegalArgumentException ex) {
-                        logger.warn("Found invalid draft path. Expected a UUID value for the provider key [path={}]", targetPath);
-                    }
-                } else {
-                    // Delete invalid link
-                    FileUtils.deleteQuietly(providerAssetDir);
-                    logger.info("Deleted symbolic link. Target was not found [link={}]", providerAssetDir);
+        try {
+            final List<CompletableFuture<Void>> scans = new ArrayList<>();
+            for (final OrphanRoot root : roots) {
+                scans.add(CompletableFuture.runAsync(() -> {
+                    final ScanCursor cursor = cursors.getOrDefault(root.name(), ScanCursor.start());
+
+                    cursors.put(root.name(), this.scan(root, cursor, deletePool, deadline, dryRun));
+                }, scanExecutor));
+            }
+            final CompletableFuture<Void> all = CompletableFuture.allOf(scans.toArray(CompletableFuture[]::new));
+
+            // Extend lock duration while waiting
+            while (true) {
+                try {
+                    all.get(this.lockDurationMillis / 2, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (final TimeoutException ex) {
+                    externalTaskService.extendLock(externalTask, this.getLockDuration());
                 }
-            } catch (IOException e) {
-                logger.warn("Failed to resolve symbolic link target [link={}]", providerAssetDir);
+            }
+        } finally {
+            scanExecutor.shutdownNow();
+            deletePool.shutdownNow();
+
+            // Cursors of completed roots are saved even if another root
+            // has failed
+            if (!dryRun) {
+                this.workerStateStore.write(CURSOR_STATE, new HashMap<>(cursors));
             }
         }
     }
 
-    private void deleteUserContractDir() {
-        for (final File userContractDir : this.contractDirectory.toFile().listFiles()) {
-            if (userContractDir.isFile()) {
-                logger.warn("A file was found in user contract directory. Expected only directories [file={}]", userContractDir);
-                continue;
+    private ScanCursor scan(OrphanRoot root, ScanCursor cursor, ForkJoinPool deletePool, long deadline, boolean dryRun) {
+        final Tags                  tags         = Tags.of("root", root.name());
+        final StopWatch             watch        = StopWatch.createStarted();
+        final List<ForkJoinTask<?>> deletions    = new ArrayList<>();
+        final List<String>          names        = this.nextNames(root, cursor);
+        String                      lastName     = null;
+        long                        entries      = 0;
+
+        for (final String name : names) {
+            if (System.currentTimeMillis() > deadline) {
+                break;
             }
-            final Path   userContractPath = userContractDir.toPath();
-            final int    count            = userContractPath.getNameCount();
-            final String userIdAsString   = userContractPath.getName(count - 1).toString();
-            try {
-                final Integer userId = Integer.parseInt(userIdAsString);
-                if (!this.userExists(userId)) {
-                    FileUtils.deleteQuietly(userContractDir);
-                    logger.warn("Deleted contract directory. User was not found [link={}]", userContractDir);
+            final Path entry = root.path().resolve(name);
+
+            if (root.isOrphan().test(entry)) {
+                if (dryRun) {
+                    logger.info("Found orphan entry [root={}, path={}]", root.name(), entry);
+                } else {
+                    // Entries are moved to the trash folder of the root and
+                    // deleted by the trash purger, which also counts the
+                    // deleted bytes
+                    deletions.add(deletePool.submit(() -> {
+                        this.trashService.delete(entry);
+                        this.meterRegistry.counter(METRIC_PREFIX + ".deleted", tags).increment();
+                    }));
                 }
-            } catch (NumberFormatException ex) {
-                logger.warn("Found invalid contract path. Expected a Integer value for the user id [path={}]", userContractDir);
             }
+            lastName = name;
+            entries++;
+        }
+
+        deletions.forEach(ForkJoinTask::join);
+
+        this.meterRegistry.counter(METRIC_PREFIX + ".entries", tags).increment(entries);
+        this.meterRegistry.timer(METRIC_PREFIX + ".duration", tags).record(watch.getTime(), TimeUnit.MILLISECONDS);
+
+        // If all remaining entries have been processed, restart the scan
+        final ScanCursor result;
+        if (entries == names.size() && names.size() < this.batchSize) {
+            result = ScanCursor.start();
+        } else if (lastName != null) {
+            result = cursor.next(lastName);
+        } else {
+            result = cursor;
         }
+
+        logger.info(
+            "Scanned directory [root={}, after={}, entries={}, deleted={}, duration={}ms, dryRun={}]",
+            root.name(), cursor.getLastName(), entries, deletions.size(), watch.getTime(), dryRun
+        );
+
+        return result;
     }
 
-    private void deleteProviderDraftDir() {
-        for (final File providerDraftDir : this.draftDirectory.toFile().listFiles()) {
-            if (providerDraftDir.isFile()) {
-                logger.warn("A file was found in user draft directory. Expected only directories [file={}]", providerDraftDir);
-                continue;
-            }
-            final Path   providerDraftPath   = providerDraftDir.toPath();
-            final int    count               = providerDraftPath.getNameCount();
-            final String providerKeyAsString = providerDraftPath.getName(count - 1).toString();
-            try {
-                final UUID providerKey = UUID.fromString(providerKeyAsString);
-                if (!this.userExists(providerKey)) {
-                    FileUtils.deleteQuietly(providerDraftDir);
-                    logger.info("Deleted draft directory. Provider was not found [link={}]", providerDraftDir);
+    /**
+     * Find the next {@link #batchSize} entry names after the cursor position
+     * in lexicographic order. Only the selected names are kept in memory.
+     *
+     * <p>
+     * A directory stream cannot be positioned, hence every execution reads the
+     * names of all entries of the root once. Only names are read; entry
+     * attributes are read only for the selected entries. Processing a root
+     * with {@code n} entries requires {@code n / batchSize} executions, and
+     * the batch size should be increased for very large roots
+     */
+    private List<String> nextNames(OrphanRoot root, ScanCursor cursor) {
+        final String                after    = cursor.getLastName();
+        final PriorityQueue<String> selected = new PriorityQueue<>(Comparator.reverseOrder());
+
+        // Directory streams do not materialize the directory listing
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root.path())) {
+            for (final Path entry : stream) {
+                final String name = entry.getFileName().toString();
+                if (name.startsWith(".") || (after != null && name.compareTo(after) <= 0)) {
+                    continue;
+                }
+                if (selected.size() < this.batchSize) {
+                    selected.add(name);
+                } else if (name.compareTo(selected.peek()) < 0) {
+                    selected.poll();
+                    selected.add(name);
                 }
-            } catch (IllegalArgumentException ex) {
-                logger.warn("Found invalid draft path. Expected a UUID value for the provider key [path={}]", providerDraftDir);
             }
+        } catch (final IOException ex) {
+            logger.error(String.format("Failed to scan directory [root=%s, path=%s]", root.name(), root.path()), ex);
         }
+
+        final List<String> names = new ArrayList<>(selected);
+        names.sort(Comparator.naturalOrder());
+        return names;
     }
 
-    private void deleteUserInvoiceDir() {
-        for (final File userInvoiceDir : this.invoiceDirectory.toFile().listFiles()) {
-            if (userInvoiceDir.isFile()) {
-                logger.warn("A file was found in user invoice directory. Expected only directories [file={}]", userInvoiceDir);
-                continue;
-            }
-            final Path   userInvoicePath = userInvoiceDir.toPath();
-            final int    count           = userInvoicePath.getNameCount();
-            final String userIdAsString  = userInvoicePath.getName(count - 1).toString();
-            try {
-                final Integer userId = Integer.parseInt(userIdAsString);
-                if (!this.userExists(userId)) {
-                    FileUtils.deleteQuietly(userInvoiceDir);
-                    logger.info("Deleted invoice directory. User was not found [link={}]", userInvoiceDir);
+    private boolean isOrphanProviderAsset(AccountExistenceIndex index, Path providerAssetDir) {
+        // Provider asset directories are symbolic links to draft
+        // directories. A draft directory is composed by the root path for
+        // drafts, the provider unique key and the draft unique key
+        if (Files.isRegularFile(providerAssetDir, LinkOption.NOFOLLOW_LINKS)) {
+            logger.warn(
+                "A file was found in provider asset directory. Expected only symbolic links to directories [file={}]",
+                providerAssetDir
+            );
+            return false;
+        }
+
+        try {
+            final Path targetPath = providerAssetDir.toRealPath();
+            if (targetPath != null && Files.exists(targetPath)) {
+                final int    count           = targetPath.getNameCount();
+                final String userKeyAsString = targetPath.getName(count - 2).toString();
+                try {
+                    final UUID userKey = UUID.fromString(userKeyAsString);
+                    if (!this.userExists(index, userKey)) {
+                        logger.info("Deleting asset symbolic link. Provider was not found [link={}]", providerAssetDir);
+                        return true;
+                    }
+                } catch (IllegalArgumentException ex) {
+                    logger.warn("Found invalid draft path. Expected a UUID value for the provider key [path={}]", targetPath);
                 }
-            } catch (NumberFormatException ex) {
-                logger.warn("Found invalid invoice path. Expected a Integer value for the user id [path={}]", userInvoiceDir);
+            } else {
+                // Delete invalid link
+                logger.info("Deleting symbolic link. Target was not found [link={}]", providerAssetDir);
+                return true;
             }
+        } catch (IOException e) {
+            logger.warn("Failed to resolve symbolic link target [link={}]", providerAssetDir);
         }
+
+        return false;
     }
 
-    private void deleteUserOrderDir() {
-        for (final File userOrderDir : this.orderDirectory.toFile().listFiles()) {
-            if (userOrderDir.isFile()) {
-                logger.warn("A file was found in user orders directory. Expected only directories [file={}]", userOrderDir);
-                continue;
-            }
-            final Path   userOrderPath  = userOrderDir.toPath();
-            final int    count          = userOrderPath.getNameCount();
-            final String userIdAsString = userOrderPath.getName(count - 1).toString();
-            try {
-                final Integer userId = Integer.parseInt(userIdAsString);
-                if (!this.userExists(userId)) {
-                    FileUtils.deleteQuietly(userOrderDir);
-                    logger.info("Deleted orders directory. User was not found [link={}]", userOrderDir);
-                }
-            } catch (NumberFormatException ex) {
-                logger.warn("Found invalid orders path. Expected a Integer value for the user id [path={}]", userOrderDir);
+    private boolean isOrphanUserIdDir(AccountExistenceIndex index, Path path, String type) {
+        if (Files.isRegularFile(path)) {
+            logger.warn("A file was found in user {} directory. Expected only directories [file={}]", type, path);
+            return false;
+        }
+        final String userIdAsString = path.getFileName().toString();
+        try {
+            final Integer userId = Integer.parseInt(userIdAsString);
+            if (!this.userExists(index, userId)) {
+                logger.info("Deleting {} directory. User was not found [path={}]", type, path);
+                return true;
             }
+        } catch (NumberFormatException ex) {
+            logger.warn("Found invalid {} path. Expected a Integer value for the user id [path={}]", type, path);
         }
+        return false;
     }
 
-    private void deleteUserDataDir() {
-        for (final File userDataDir : this.userDirectory.toFile().listFiles()) {
-            if (userDataDir.isFile()) {
-                logger.warn("A file was found in user data directory. Expected only directories [file={}]", userDataDir);
-                continue;
-            }
-            final Path   userDataPath = userDataDir.toPath();
-            final int    count        = userDataPath.getNameCount();
-            final String userEmail    = userDataPath.getName(count - 1).toString();
-            if (!this.userExists(userEmail)) {
-                FileUtils.deleteQuietly(userDataDir);
-                logger.info("Deleted user data directory. User was not found [link={}]", userDataDir);
+    private boolean isOrphanUserKeyDir(AccountExistenceIndex index, Path path, String type) {
+        if (Files.isRegularFile(path)) {
+            logger.warn("A file was found in user {} directory. Expected only directories [file={}]", type, path);
+            return false;
+        }
+        final String userKeyAsString = path.getFileName().toString();
+        try {
+            final UUID userKey = UUID.fromString(userKeyAsString);
+            if (!this.userExists(index, userKey)) {
+                logger.info("Deleting {} directory. User was not found [path={}]", type, path);
+                return true;
             }
+        } catch (IllegalArgumentException ex) {
+            logger.warn("Found invalid {} path. Expected a UUID value for the user key [path={}]", type, path);
         }
+        return false;
     }
 
-    private void deleteUserServiceDir() {
-        for (final File userServiceDir : this.userServiceDirectory.toFile().listFiles()) {
-            if (userServiceDir.isFile()) {
-                logger.warn("A file was found in user services directory. Expected only directories [file={}]", userServiceDir);
-                continue;
-            }
-            final Path   userServicePath = userServiceDir.toPath();
-            final int    count           = userServicePath.getNameCount();
-            final String userKeyAsString = userServicePath.getName(count - 1).toString();
-            try {
-                final UUID userKey = UUID.fromString(userKeyAsString);
-                if (!this.userExists(userKey)) {
-                    FileUtils.deleteQuietly(userServiceDir);
-                    logger.info("Deleted user services directory. User was not found [link={}]", userServiceDir);
-                }
-            } catch (IllegalArgumentException ex) {
-                logger.warn("Found invalid user services path. Expected a UUID value for the user key [path={}]", userServiceDir);
-            }
+    private boolean isOrphanUserDataDir(AccountExistenceIndex index, Path path) {
+        if (Files.isRegularFile(path)) {
+            logger.warn("A file was found in user data directory. Expected only directories [file={}]", path);
+            return false;
+        }
+        final String userEmail = path.getFileName().toString();
+        if (!this.userExists(index, userEmail)) {
+            logger.info("Deleting user data directory. User was not found [path={}]", path);
+            return true;
         }
+        return false;
     }
 
-    private boolean userExists(Integer id) {
-        return this.accountRepository.findById(id).isPresent();
+    /*
+     * The index is a snapshot. Accounts that are not found in the index are
+     * checked against the database, since they may have been created after
+     * the index was loaded
+     */
+
+    private boolean userExists(AccountExistenceIndex index, Integer id) {
+        return index.contains(id) || this.accountIdentityRepository.existsById(id);
+    }
+
+    private boolean userExists(AccountExistenceIndex index, UUID key) {
+        return index.contains(key) || this.accountIdentityRepository.existsByKey(key);
     }
 
-    private boolean userExists(UUID key) {
-        return this.accountRepository.findOneByKey(key).isPresent();
+    private boolean userExists(AccountExistenceIndex index, String email) {
+        return index.contains(email) || this.accountIdentityRepository.existsByEmail(email);
     }
 
-    private boolean userExists(String email) {
-        return this.accountRepository.findOneByEmail(email).isPresent();
+    private record OrphanRoot(String name, Path path, Predicate<Path> isOrphan) {
+
     }
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,24 @@
 package eu.opertusmundi.bpm.worker.subscriptions.support;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
 import org.apache.commons.lang3.StringUtils;
 import org.camunda.bpm.client.task.ExternalTask;
 import org.camunda.bpm.client.task.ExternalTaskService;
@@ -7,19 +26,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Direction;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+
 import eu.opertusmundi.bpm.worker.model.BpmnWorkerException;
+import eu.opertusmundi.bpm.worker.model.StoredImage;
+import eu.opertusmundi.bpm.worker.repository.AccountProfileImageRepository;
+import eu.opertusmundi.bpm.worker.repository.CustomerLogoImageRepository;
+import eu.opertusmundi.bpm.worker.service.KeysetCursor;
+import eu.opertusmundi.bpm.worker.service.WorkerStateStore;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
-import eu.opertusmundi.common.domain.AccountEntity;
-import eu.opertusmundi.common.domain.AccountProfileEntity;
-import eu.opertusmundi.common.domain.CustomerEntity;
-import eu.opertusmundi.common.domain.CustomerProfessionalEntity;
-import eu.opertusmundi.common.repository.AccountRepository;
 import eu.opertusmundi.common.util.ImageUtils;
 
 @Service
@@ -28,6 +46,8 @@ public class ImageResizeTaskService extends AbstractTaskService {
     private static final Logger logger = LoggerFactory.getLogger(ImageResizeTaskService.class);
 
     private static final String IMAGE_SIZE_VARIABLE = "imageSize";
+
+    private static final String FINGERPRINT_STATE = "image-resize/fingerprints-%d";
     
     @Value("${opertusmundi.bpm.worker.tasks.ingest.lock-duration:120000}")
     private Long lockDurationMillis;
@@ -40,8 +60,27 @@ public class ImageResizeTaskService extends AbstractTaskService {
     @Autowired
     private ImageUtils imageUtils;
 
+    @Value("${opertusmundi.bpm.worker.tasks.resize-images.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * Max number of images decoded and resized concurrently by the shared
+     * task executor
+     */
+    @Value("${opertusmundi.bpm.worker.tasks.resize-images.parallelism:2}")
+    private int parallelism;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
     @Autowired
-    private AccountRepository accountRepository;
+    private AccountProfileImageRepository accountProfileImageRepository;
+
+    @Autowired
+    private CustomerLogoImageRepository customerLogoImageRepository;
+
+    @Autowired
+    private WorkerStateStore workerStateStore;
 
     @Override
     public String getTopicName() {
@@ -58,38 +97,24 @@ public class ImageResizeTaskService extends AbstractTaskService {
 
             logger.debug("Processing task. [taskId={}, externalTask={}]", taskId, externalTask);
 
-            final Sort  sort        = Sort.by(Direction.ASC, "id");
-            PageRequest pageRequest = PageRequest.of(0, 10, sort);
-
-            Page<AccountEntity> accounts = this.accountRepository.findAll(pageRequest);
-
-            while (!accounts.isEmpty()) {
-                for (AccountEntity account : accounts) {
-                    final AccountProfileEntity       profile  = account.getProfile();
-                    final CustomerProfessionalEntity provider = profile.getProvider();
-                    final CustomerEntity             consumer = profile.getConsumer();
-
-                    // Resize account image
-                    imageUtils.resizeImage(profile.getImage(), profile.getImageMimeType(), imageSize);
-                    // Resize provider image
-                    if (provider != null) {
-                        imageUtils.resizeImage(provider.getLogoImage(), provider.getLogoImageMimeType(), imageSize);
-                    }
-                    // Resize consumer image if the customer type is
-                    // professional
-                    if (consumer != null && consumer instanceof CustomerProfessionalEntity) {
-                        final CustomerProfessionalEntity typedConsumer = (CustomerProfessionalEntity) consumer;
-                        imageUtils.resizeImage(typedConsumer.getLogoImage(), typedConsumer.getLogoImageMimeType(), imageSize);
-                    }
-                }
-
-                // Extend lock duration
-                externalTaskService.extendLock(externalTask, this.getLockDuration());
+            final String              stateName    = String.format(FINGERPRINT_STATE, imageSize);
+            final Map<String, String> fingerprints = this.workerStateStore.read(
+                stateName, new TypeReference<Map<String, String>>() { }
+            ).orElse(Map.of());
+            final Map<String, String> current      = new HashMap<>();
+            final List<ImageSource>   sources      = List.of(
+                new ImageSource("profile", this.accountProfileImageRepository::findAllImagesAfter),
+                new ImageSource("logo", this.customerLogoImageRepository::findAllLogoImagesAfter)
+            );
 
-                pageRequest = pageRequest.next();
-                accounts    = this.accountRepository.findAll(pageRequest);
+            for (final ImageSource source : sources) {
+                this.resizeImages(externalTask, externalTaskService, source, imageSize, fingerprints, current);
             }
 
+            // Fingerprints are persisted once per execution. Only
+            // fingerprints of existing images are kept
+            this.workerStateStore.write(stateName, current);
+
             // Complete task
             this.postExecution(externalTask, externalTaskService);
 
@@ -109,6 +134,120 @@ public class ImageResizeTaskService extends AbstractTaskService {
         }
     }
 
+    /**
+     * Resize all images of a source. Images are loaded in chunks; images with
+     * the same fingerprint as in the previous execution are skipped and the
+     * remaining images are decoded and resized concurrently.
+     *
+     * <p>
+     * Stored images are never replaced; a stored image is the original upload
+     * and resized copies are derived from it. The fingerprint of an image is
+     * recorded after it has been processed successfully
+     */
+    private void resizeImages(
+        ExternalTask externalTask, ExternalTaskService externalTaskService,
+        ImageSource source, int imageSize, Map<String, String> fingerprints, Map<String, String> current
+    ) throws InterruptedException {
+        final KeysetCursor<StoredImage> images  = KeysetCursor.of(source.query(), StoredImage::id, this.batchSize);
+        final Semaphore                 permits = new Semaphore(Math.max(1, this.parallelism));
+
+        int skipped = 0;
+        int resized = 0;
+
+        while (images.hasNext()) {
+            final List<StoredImage>               chunk   = images.next();
+            final List<String>                    keys    = new ArrayList<>();
+            final List<String>                    hashes  = new ArrayList<>();
+            final List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+
+            try {
+                for (final StoredImage image : chunk) {
+                    final String key         = source.name() + "/" + image.id();
+                    final String fingerprint = this.fingerprint(image.image());
+
+                    if (fingerprint.equals(fingerprints.get(key))) {
+                        current.put(key, fingerprint);
+                        skipped++;
+                        continue;
+                    }
+                    permits.acquire();
+                    keys.add(key);
+                    hashes.add(fingerprint);
+                    futures.add(CompletableFuture
+                        .supplyAsync(() -> this.resizeImage(image, imageSize), this.taskExecutor)
+                        .whenComplete((result, ex) -> permits.release())
+                    );
+                }
+
+                for (int i = 0; i < futures.size(); i++) {
+                    if (this.join(futures.get(i)) == null) {
+                        skipped++;
+                    } else {
+                        resized++;
+                    }
+                    current.put(keys.get(i), hashes.get(i));
+                }
+            } catch (final InterruptedException | RuntimeException ex) {
+                futures.forEach(f -> f.cancel(true));
+                throw ex;
+            }
+
+            // Extend lock duration
+            externalTaskService.extendLock(externalTask, this.getLockDuration());
+        }
+
+        logger.info("Resized images [source={}, resized={}, skipped={}]", source.name(), resized, skipped);
+    }
+
+    /**
+     * Resize an image if any of its dimensions exceeds the specified size
+     *
+     * @return the resized image or {@code null} if the image does not need
+     *         to be resized or its format is not supported
+     */
+    private byte[] resizeImage(StoredImage image, int imageSize) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image.image()))) {
+            final Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                logger.debug("Image format is not supported [id={}, mimeType={}]", image.id(), image.mimeType());
+                return null;
+            }
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if (reader.getWidth(0) <= imageSize && reader.getHeight(0) <= imageSize) {
+                    return null;
+                }
+            } finally {
+                reader.dispose();
+            }
+
+            return this.imageUtils.resizeImage(image.image(), image.mimeType(), imageSize);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(String.format("Failed to resize image [id=%s]", image.id()), ex);
+        }
+    }
+
+    private byte[] join(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException ex) {
+            if (ex.getCause() instanceof final RuntimeException runtimeEx) {
+                throw runtimeEx;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private String fingerprint(byte[] data) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return data.length + ":" + HexFormat.of().formatHex(digest.digest(data));
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     protected void preExecution(ExternalTask externalTask, ExternalTaskService externalTaskService) {
 
     }
@@ -137,4 +276,8 @@ public class ImageResizeTaskService extends AbstractTaskService {
         return result;
     }
 
+    private record ImageSource(String name, KeysetCursor.ChunkQuery<StoredImage> query) {
+
+    }
+
 }
\ No newline at end of file
@@ -1,13 +1,24 @@
 package eu.opertusmundi.bpm.worker.subscriptions.support;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.camunda.bpm.client.task.ExternalTask;
 import org.camunda.bpm.client.task.ExternalTaskService;
 import org.elasticsearch.index.query.BoolQueryBuilder;
@@ -17,17 +28,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 
+import eu.opertusmundi.bpm.worker.repository.AccountIdentityRepository;
+import eu.opertusmundi.bpm.worker.service.CatalogueItemCache;
+import eu.opertusmundi.bpm.worker.service.CataloguePageIterator;
+import eu.opertusmundi.bpm.worker.service.TrashService;
 import eu.opertusmundi.bpm.worker.subscriptions.AbstractTaskService;
 import eu.opertusmundi.common.config.GeodataConfiguration;
-import eu.opertusmundi.common.domain.AccountEntity;
 import eu.opertusmundi.common.model.BasicMessageCode;
 import eu.opertusmundi.common.model.ServiceException;
 import eu.opertusmundi.common.model.catalogue.client.CatalogueAssetQuery;
+import eu.opertusmundi.common.model.catalogue.client.EnumSpatialDataServiceType;
 import eu.opertusmundi.common.model.catalogue.server.CatalogueFeature;
-import eu.opertusmundi.common.repository.AccountRepository;
+import eu.opertusmundi.common.model.geodata.Shard;
+import eu.opertusmundi.common.model.ingest.ResourceIngestionDataDto;
 import eu.opertusmundi.common.service.CatalogueService;
 import eu.opertusmundi.common.service.ElasticSearchService;
 import eu.opertusmundi.common.service.IngestService;
@@ -43,31 +60,43 @@ public class RemoveOrphanCatalogueItemsTaskService extends AbstractTaskService {
     @Value("${opertusmundi.bpm.worker.tasks.remove-orphan-catalogue-items.lock-duration:120000}")
     private Long lockDurationMillis;
 
-    @Value("${opertusmundi.bpm.worker.tasks.remove-orphan-catalogue-items.batch-size:20}")
+    @Value("${opertusmundi.bpm.worker.tasks.remove-orphan-catalogue-items.batch-size:100}")
     private int batchSize;
 
-    private final GeodataConfiguration geodataConfiguration;
-    private final AccountRepository    accountRepository;
-    private final CatalogueService     catalogueService;
-    private final ElasticSearchService elasticSearchService;
-    private final IngestService        ingestService;
-    private final Path                 assetDirectory;
+    @Value("${opertusmundi.bpm.worker.tasks.remove-orphan-catalogue-items.delete-parallelism:4}")
+    private int deleteParallelism;
+
+    private final GeodataConfiguration      geodataConfiguration;
+    private final AccountIdentityRepository accountIdentityRepository;
+    private final CatalogueService          catalogueService;
+    private final CatalogueItemCache        catalogueItemCache;
+    private final ElasticSearchService      elasticSearchService;
+    private final IngestService             ingestService;
+    private final Path                      assetDirectory;
+    private final TrashService              trashService;
+    private final TaskExecutor              taskExecutor;
 
     @Autowired
     public RemoveOrphanCatalogueItemsTaskService(
         GeodataConfiguration geodataConfiguration,
-        AccountRepository accountRepository,
+        AccountIdentityRepository accountIdentityRepository,
         CatalogueService catalogueService,
+        CatalogueItemCache catalogueItemCache,
         ElasticSearchService elasticSearchService,
         IngestService ingestService,
-        Path assetDirectory
+        Path assetDirectory,
+        TrashService trashService,
+        TaskExecutor taskExecutor
     ) {
-        this.geodataConfiguration = geodataConfiguration;
-        this.accountRepository    = accountRepository;
-        this.catalogueService     = catalogueService;
-        this.elasticSearchService = elasticSearchService;
-        this.ingestService        = ingestService;
-        this.assetDirectory       = assetDirectory;
+        this.geodataConfiguration      = geodataConfiguration;
+        this.accountIdentityRepository = accountIdentityRepository;
+        this.catalogueService          = catalogueService;
+        this.catalogueItemCache        = catalogueItemCache;
+        this.elasticSearchService      = elasticSearchService;
+        this.ingestService             = ingestService;
+        this.assetDirectory            = assetDirectory;
+        this.trashService              = trashService;
+        this.taskExecutor              = taskExecutor;
     }
 
     @Override
@@ -86,37 +115,42 @@ public class RemoveOrphanCatalogueItemsTaskService extends AbstractTaskService {
             final String taskId = externalTask.getId();
             logger.info("Received task. [taskId={}]", taskId);
 
-            // Collect assets to delete
-            CatalogueAssetQuery     query    = CatalogueAssetQuery.builder().page(0).size(batchSize).build();
-            List<CatalogueFeature>  features = this.catalogueService.findAllFeatures(query);
-            List<FeatureDeleteTask> tasks    = new ArrayList<>();
+            // Collect assets to delete. The next page is fetched while the
+            // current page is processed
+            final List<FeatureDeleteTask>                 tasks = new ArrayList<>();
+            final CataloguePageIterator<CatalogueFeature> pages = CataloguePageIterator.scan(
+                page -> this.catalogueService.findAllFeatures(CatalogueAssetQuery.builder().page(page).size(batchSize).build()),
+                CatalogueFeature::getId,
+                this.taskExecutor
+            );
+
+            while (pages.hasNext()) {
+                final List<CatalogueFeature> features = pages.next();
+
+                // Resolve all publishers of the page with a single query
+                final Set<UUID> publisherKeys = features.stream()
+                    .map(f -> f.getProperties().getPublisherId())
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+                final Set<UUID> existingKeys  = publisherKeys.isEmpty()
+                    ? Set.of()
+                    : new HashSet<>(this.accountIdentityRepository.findAllExistingKeys(publisherKeys));
 
-            while (!features.isEmpty()) {
                 for (final CatalogueFeature feature : features) {
-                    final String        pid          = feature.getId();
-                    final UUID          publisherKey = feature.getProperties().getPublisherId();
-                    final AccountEntity publisher    = this.accountRepository.findOneByKey(publisherKey).orElse(null);
-                    if (publisher == null) {
+                    final String pid          = feature.getId();
+                    final UUID   publisherKey = feature.getProperties().getPublisherId();
+                    if (!existingKeys.contains(publisherKey)) {
                         logger.info("Removing asset due to missing publisher [pid={}, publisher={}]", pid, publisherKey);
 
                         tasks.add(FeatureDeleteTask.of(feature, pid, publisherKey));
                     }
                 }
-                // Fetch next batch
-                query    = query.next();
-                features = this.catalogueService.findAllFeatures(query);
                 // Extend lock duration
                 externalTaskService.extendLock(externalTask, this.getLockDuration());
             }
 
             // Delete assets
-            for (final FeatureDeleteTask task : tasks) {
-                this.deleteAssetStatistics(externalTask, externalTaskService, task);
-                this.deleteAsset(externalTask, externalTaskService, task);
-
-                // Extend lock duration
-                externalTaskService.extendLock(externalTask, this.getLockDuration());
-            }
+            this.deleteAssets(externalTask, externalTaskService, tasks);
 
             externalTaskService.complete(externalTask);
             logger.info("Completed task. [taskId={}]", taskId);
@@ -127,11 +161,49 @@ public class RemoveOrphanCatalogueItemsTaskService extends AbstractTaskService {
         }
     }
 
+    private void deleteAssets(
+        ExternalTask externalTask, ExternalTaskService externalTaskService, List<FeatureDeleteTask> tasks
+    ) throws InterruptedException, ExecutionException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.deleteParallelism));
+
+        try {
+            for (int offset = 0; offset < tasks.size(); offset += this.batchSize) {
+                final List<FeatureDeleteTask> batch = tasks.subList(offset, Math.min(offset + this.batchSize, tasks.size()));
+
+                // Statistics for the whole batch are deleted with a single
+                // request per index
+                this.deleteAssetStatistics(externalTask, externalTaskService, batch);
+
+                // Assets are independent and are deleted concurrently
+                final List<Future<?>> futures = new ArrayList<>(batch.size());
+                for (final FeatureDeleteTask task : batch) {
+                    futures.add(executor.submit(() -> this.deleteAsset(externalTask, externalTaskService, task)));
+                }
+                for (final Future<?> f : futures) {
+                    f.get();
+                }
+
+                // Extend lock duration
+                externalTaskService.extendLock(externalTask, this.getLockDuration());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private void deleteAsset(ExternalTask externalTask, ExternalTaskService externalTaskService, FeatureDeleteTask task) {
+        final List<Shard> shards = this.geodataConfiguration.getShards();
+
         StreamUtils.from(task.feature.getProperties().getIngestionInfo()).forEach(d -> {
-            // We scan all registered shards and attempt to remove the
-            // specified layer
-            this.geodataConfiguration.getShards().stream().forEach(s-> {
+            // Remove the layer from the shard that serves the layer
+            // endpoints. If the shard is unknown, we scan all registered
+            // shards and attempt to remove the specified layer
+            final List<Shard> targets = this.findShards(shards, d);
+
+            targets.forEach(s -> {
                 this.ingestService.removeDataAndLayer(s.getId(), "_" + task.publisherKey.toString(), d.getTableName());
             });
         });
@@ -140,30 +212,83 @@ public class RemoveOrphanCatalogueItemsTaskService extends AbstractTaskService {
             final Path assetPath = Paths.get(this.assetDirectory.toString(), task.feature.getId());
             final Path draftPath = assetPath.toFile().exists() ? assetPath.toRealPath() : null;
             if (assetPath.toFile().exists()) {
-                FileUtils.deleteQuietly(assetPath.toFile());
+                this.trashService.delete(assetPath);
             }
             if (draftPath != null && draftPath.toFile().exists()) {
-                FileUtils.deleteQuietly(draftPath.toFile());
+                this.trashService.delete(draftPath);
             }
         } catch (IOException ex) {
             logger.warn(String.format("Failed to delete asset resources [pid=%s]", task.pid), ex);
         }
 
         this.catalogueService.unpublish(task.publisherKey, task.pid);
+        this.catalogueItemCache.invalidate(task.pid);
+    }
+
+    /**
+     * Find the shards that serve the endpoints of an ingested resource.
+     * Endpoint URIs are created from templates such as
+     * {@code https://{shard}.ows.topio.market/{workspace}/wms}; a shard
+     * matches if its identifier is equal to a host label or a path segment of
+     * an endpoint URI. If no shard matches, all shards are returned
+     *
+     * @param shards
+     * @param data
+     * @return
+     */
+    private List<Shard> findShards(List<Shard> shards, ResourceIngestionDataDto data) {
+        final Set<String> tokens = Arrays.stream(EnumSpatialDataServiceType.values())
+            .map(data::getEndpointByServiceType)
+            .filter(Objects::nonNull)
+            .map(ResourceIngestionDataDto.ServiceEndpoint::getUri)
+            .filter(StringUtils::isNotBlank)
+            .flatMap(u -> this.getUriTokens(u).stream())
+            .collect(Collectors.toSet());
+
+        final List<Shard> result = shards.stream()
+            .filter(s -> s.getId() != null && tokens.contains(s.getId().toLowerCase()))
+            .toList();
+
+        return result.isEmpty() ? shards : result;
+    }
+
+    /**
+     * Get the host labels and path segments of a URI in lower case
+     *
+     * @param uri
+     * @return
+     */
+    private List<String> getUriTokens(String uri) {
+        try {
+            final URI          parsed = new URI(uri);
+            final List<String> result = new ArrayList<>();
+
+            if (parsed.getHost() != null) {
+                result.addAll(Arrays.asList(StringUtils.split(parsed.getHost(), '.')));
+            }
+            if (parsed.getPath() != null) {
+                result.addAll(Arrays.asList(StringUtils.split(parsed.getPath(), '/')));
+            }
+            return result.stream().map(String::toLowerCase).toList();
+        } catch (final URISyntaxException ex) {
+            logger.warn("Failed to parse service endpoint [uri={}, message={}]", uri, ex.getMessage());
+
+            return List.of();
+        }
     }
 
-    private void deleteAssetStatistics(ExternalTask externalTask, ExternalTaskService externalTaskService, FeatureDeleteTask task) {
+    private void deleteAssetStatistics(ExternalTask externalTask, ExternalTaskService externalTaskService, List<FeatureDeleteTask> tasks) {
+        final List<String> pids = tasks.stream().map(t -> t.pid).toList();
         try {
             final SearchSourceBuilder searchBuilder = new SearchSourceBuilder();
             final BoolQueryBuilder    query         = QueryBuilders.boolQuery();
-            query.should(QueryBuilders.matchQuery("id.keyword", task.pid));
-            query.minimumShouldMatch(1);
+            query.filter(QueryBuilders.termsQuery("id.keyword", pids));
             final String entity = searchBuilder.query(query).toString();
 
             this.elasticSearchService.performRequest(HttpMethod.POST, "/assets_view/_delete_by_query", entity);
             this.elasticSearchService.performRequest(HttpMethod.POST, "/assets_view_aggregate/_delete_by_query", entity);
         } catch (Exception ex) {
-            final String message = String.format("Failed to delete asset statistics [pid=%s]", task.pid);
+            final String message = String.format("Failed to delete asset statistics [pid=%s]", pids);
             throw new ServiceException(BasicMessageCode.InternalServerError, message, ex);
         }
     }
@@ -0,0 +1,14 @@
+-- Accounts processed by a service billing batch. An entry is inserted in the
+-- same transaction as the billing records of the account
+CREATE TABLE IF NOT EXISTS "billing".service_billing_journal (
+  "batch_key"                 uuid          NOT NULL,
+  "account_id"                integer       NOT NULL,
+  "partition_index"           integer       NOT NULL,
+  "partition_count"           integer       NOT NULL,
+  "subscriptions"             integer       NOT NULL,
+  "total_price"               numeric       NOT NULL,
+  "total_price_excluding_tax" numeric       NOT NULL,
+  "total_tax"                 numeric       NOT NULL,
+  "created_on"                timestamp     NOT NULL DEFAULT now(),
+  CONSTRAINT pk_service_billing_journal PRIMARY KEY ("batch_key", "account_id")
+);
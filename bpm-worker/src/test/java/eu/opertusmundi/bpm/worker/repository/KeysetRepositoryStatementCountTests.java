@@ -0,0 +1,183 @@
+package eu.opertusmundi.bpm.worker.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import eu.opertusmundi.bpm.worker.model.AccountIdentity;
+import eu.opertusmundi.bpm.worker.model.DraftPublishedAsset;
+import eu.opertusmundi.bpm.worker.model.FavoriteAssetRecipient;
+import eu.opertusmundi.bpm.worker.service.KeysetCursor;
+import eu.opertusmundi.common.model.favorite.EnumAssetFavoriteAction;
+
+/**
+ * Verifies that keyset projection scans execute exactly one statement per
+ * chunk and never load entities, i.e. no N+1 selects are issued while
+ * iterating.
+ *
+ * <p>
+ * The tests require the PostgreSQL database configured by the integration
+ * tests resources and are enabled only with the continuous integration
+ * profile:
+ *
+ * <pre>
+ * mvn test -DenableCiProfile=true -Dtest=KeysetRepositoryStatementCountTests
+ * </pre>
+ *
+ * Accounts, drafts and favorites are inserted by
+ * {@code sql/keyset-repository-fixtures.sql} in the test transaction, so that
+ * every scan spans several chunks.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("testing")
+@EnabledIfSystemProperty(named = "enableCiProfile", matches = ".*")
+@Sql("/sql/keyset-repository-fixtures.sql")
+class KeysetRepositoryStatementCountTests {
+
+    private static final int CHUNK_SIZE = 2;
+
+    private static final int FIXTURE_ACCOUNTS = 6;
+
+    private static final int FIXTURE_ROWS = 5;
+
+    private static final UUID PUBLISHER_KEY = UUID.fromString("a0000000-0000-0000-0000-000000900001");
+
+    private static final int PUBLISHER_ID = 900001;
+
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = eu.opertusmundi.common.domain._Marker.class)
+    @EnableJpaRepositories(basePackageClasses = eu.opertusmundi.bpm.worker.repository._Marker.class)
+    static class RepositoryTestConfiguration {
+
+    }
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AccountIdentityRepository accountIdentityRepository;
+
+    @Autowired
+    private DraftKeysetRepository draftKeysetRepository;
+
+    @Autowired
+    private FavoriteKeysetRepository favoriteKeysetRepository;
+
+    @Test
+    void accountPartitionScanExecutesOneStatementPerChunk() {
+        final long rows = this.entityManager
+            .createQuery("SELECT COUNT(a) FROM AccountEntity a", Long.class)
+            .getSingleResult();
+
+        final Statistics statistics = this.resetStatistics();
+
+        final List<AccountIdentity> result = KeysetCursor.<AccountIdentity>of(
+            (after, pageable) -> this.accountIdentityRepository.findAllInPartitionAfter(after, 1, 0, pageable),
+            AccountIdentity::id,
+            CHUNK_SIZE
+        ).stream().toList();
+
+        // Other accounts may exist, if the schema is not recreated
+        assertThat(rows).isGreaterThanOrEqualTo(FIXTURE_ACCOUNTS);
+        assertThat(result).hasSize((int) rows);
+        assertThat(result)
+            .extracting(AccountIdentity::id)
+            .contains(900001, 900002, 900003, 900004, 900005, 900006);
+        this.assertStatements(statistics, rows);
+    }
+
+    @Test
+    void draftPublishedAssetScanExecutesOneStatementPerChunk() {
+        final Statistics statistics = this.resetStatistics();
+
+        final List<DraftPublishedAsset> result = KeysetCursor.<DraftPublishedAsset>of(
+            (after, pageable) -> this.draftKeysetRepository.findAllPublishedByPublisherAfter(PUBLISHER_KEY, after, pageable),
+            DraftPublishedAsset::id,
+            CHUNK_SIZE
+        ).stream().toList();
+
+        // The unpublished draft is excluded
+        assertThat(result)
+            .extracting(DraftPublishedAsset::id)
+            .containsExactly(900001, 900002, 900003, 900004, 900005);
+        assertThat(result)
+            .extracting(DraftPublishedAsset::pid)
+            .containsExactly("keyset-asset-1", "keyset-asset-2", "keyset-asset-3", "keyset-asset-4", "keyset-asset-5");
+        this.assertStatements(statistics, FIXTURE_ROWS);
+    }
+
+    @Test
+    void favoriteRecipientScanExecutesOneStatementPerChunk() {
+        final Statistics statistics = this.resetStatistics();
+
+        final List<FavoriteAssetRecipient> result = KeysetCursor.<FavoriteAssetRecipient>of(
+            (after, pageable) -> this.favoriteKeysetRepository.findAllRecipientsByAssetProviderAfter(
+                PUBLISHER_ID, EnumAssetFavoriteAction.PURCHASE, after, pageable
+            ),
+            FavoriteAssetRecipient::id,
+            CHUNK_SIZE
+        ).stream().toList();
+
+        // The favorite for which a notification has been sent is excluded.
+        // The account association is resolved by the query join
+        assertThat(result)
+            .extracting(FavoriteAssetRecipient::id)
+            .containsExactly(900001, 900002, 900003, 900004, 900005);
+        assertThat(result)
+            .extracting(FavoriteAssetRecipient::recipientKey)
+            .containsExactly(
+                UUID.fromString("a0000000-0000-0000-0000-000000900002"),
+                UUID.fromString("a0000000-0000-0000-0000-000000900003"),
+                UUID.fromString("a0000000-0000-0000-0000-000000900004"),
+                UUID.fromString("a0000000-0000-0000-0000-000000900005"),
+                UUID.fromString("a0000000-0000-0000-0000-000000900006")
+            );
+        this.assertStatements(statistics, FIXTURE_ROWS);
+    }
+
+    private Statistics resetStatistics() {
+        final Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        this.entityManager.flush();
+        this.entityManager.clear();
+        statistics.clear();
+
+        return statistics;
+    }
+
+    private void assertStatements(Statistics statistics, long rows) {
+        // Every chunk is fetched with a single statement. If the last chunk is
+        // full, one more statement returns an empty chunk
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(rows / CHUNK_SIZE + 1);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(rows / CHUNK_SIZE + 1);
+
+        // Projections must not load entities or associations
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getEntityFetchCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+    }
+
+}
@@ -0,0 +1,32 @@
+-- Fixtures for KeysetRepositoryStatementCountTests. The script is executed in
+-- the test transaction and all rows are rolled back after every test.
+--
+-- With a chunk size of 2, every scan below returns 5 rows in 3 chunks.
+
+-- Publisher (900001) and consumers (900002-900006)
+INSERT INTO "web".account ("id", "key", "email", "active", "blocked", "email_verified", "registered_at") VALUES
+  (900001, 'a0000000-0000-0000-0000-000000900001', 'keyset-publisher@example.com',  true, false, true, now()),
+  (900002, 'a0000000-0000-0000-0000-000000900002', 'keyset-consumer-1@example.com', true, false, true, now()),
+  (900003, 'a0000000-0000-0000-0000-000000900003', 'keyset-consumer-2@example.com', true, false, true, now()),
+  (900004, 'a0000000-0000-0000-0000-000000900004', 'keyset-consumer-3@example.com', true, false, true, now()),
+  (900005, 'a0000000-0000-0000-0000-000000900005', 'keyset-consumer-4@example.com', true, false, true, now()),
+  (900006, 'a0000000-0000-0000-0000-000000900006', 'keyset-consumer-5@example.com', true, false, true, now());
+
+-- Five published drafts and one draft that is not published
+INSERT INTO "provider".asset_draft ("id", "key", "account", "title", "version", "status", "asset_published", "created_on", "modified_on") VALUES
+  (900001, 'd0000000-0000-0000-0000-000000900001', 900001, 'Keyset draft 1', '1.0.0', 'PUBLISHED', 'keyset-asset-1', now(), now()),
+  (900002, 'd0000000-0000-0000-0000-000000900002', 900001, 'Keyset draft 2', '1.0.0', 'PUBLISHED', 'keyset-asset-2', now(), now()),
+  (900003, 'd0000000-0000-0000-0000-000000900003', 900001, 'Keyset draft 3', '1.0.0', 'PUBLISHED', 'keyset-asset-3', now(), now()),
+  (900004, 'd0000000-0000-0000-0000-000000900004', 900001, 'Keyset draft 4', '1.0.0', 'PUBLISHED', 'keyset-asset-4', now(), now()),
+  (900005, 'd0000000-0000-0000-0000-000000900005', 900001, 'Keyset draft 5', '1.0.0', 'PUBLISHED', 'keyset-asset-5', now(), now()),
+  (900006, 'd0000000-0000-0000-0000-000000900006', 900001, 'Keyset draft 6', '1.0.0', 'DRAFT',     NULL,             now(), now());
+
+-- Five pending PURCHASE favorites of the publisher's assets, one per
+-- consumer, and one favorite for which a notification has been sent
+INSERT INTO "web".favorite ("id", "key", "type", "account", "title", "asset_id", "asset_provider", "action", "notification_sent", "created_on") VALUES
+  (900001, 'f0000000-0000-0000-0000-000000900001', 'ASSET', 900002, 'Keyset asset 1', 'keyset-asset-1', 900001, 'PURCHASE', false, now()),
+  (900002, 'f0000000-0000-0000-0000-000000900002', 'ASSET', 900003, 'Keyset asset 1', 'keyset-asset-1', 900001, 'PURCHASE', false, now()),
+  (900003, 'f0000000-0000-0000-0000-000000900003', 'ASSET', 900004, 'Keyset asset 2', 'keyset-asset-2', 900001, 'PURCHASE', false, now()),
+  (900004, 'f0000000-0000-0000-0000-000000900004', 'ASSET', 900005, 'Keyset asset 3', 'keyset-asset-3', 900001, 'PURCHASE', false, now()),
+  (900005, 'f0000000-0000-0000-0000-000000900005', 'ASSET', 900006, 'Keyset asset 4', 'keyset-asset-4', 900001, 'PURCHASE', false, now()),
+  (900006, 'f0000000-0000-0000-0000-000000900006', 'ASSET', 900002, 'Keyset asset 5', 'keyset-asset-5', 900001, 'PURCHASE', true,  now());